@@ -1,35 +1,68 @@
 package com.mb.exo_player;
 
 import android.app.Activity;
-import android.app.ActivityManager;
+import android.app.Application;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
+import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.Bundle;
 import android.os.IBinder;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.content.ContextCompat;
 
+import com.google.android.exoplayer2.DefaultLoadControl;
+
+import com.mb.exo_player.cache.ArtworkCache;
+import com.mb.exo_player.cache.MediaCache;
+import com.mb.exo_player.cache.PcmCache;
+import com.mb.exo_player.cache.Prefetcher;
+import com.mb.exo_player.codec.PlaylistCodec;
+import com.mb.exo_player.dispatch.CommandMetrics;
+import com.mb.exo_player.dispatch.MainThreadResult;
+import com.mb.exo_player.dispatch.PendingCommand;
+import com.mb.exo_player.download.OfflineDownloads;
+import com.mb.exo_player.enums.BufferProfile;
 import com.mb.exo_player.enums.NotificationActionCallbackMode;
 import com.mb.exo_player.enums.NotificationActionMode;
 import com.mb.exo_player.enums.NotificationActionName;
+import com.mb.exo_player.events.PlayerEventStream;
 
 import com.mb.exo_player.enums.PlayerMode;
 import com.mb.exo_player.enums.PlayerState;
+import com.mb.exo_player.enums.SourceType;
 import com.mb.exo_player.interfaces.AudioPlayer;
 import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.models.AudioVariant;
+import com.mb.exo_player.models.BufferConfig;
+import com.mb.exo_player.models.PositionUpdateConfig;
+import com.mb.exo_player.network.HttpStack;
+import com.mb.exo_player.network.RetryPolicy;
 import com.mb.exo_player.players.BackgroundAudioPlayer;
-import com.mb.exo_player.players.ForegroundAudioPlayer;
+import com.mb.exo_player.players.BackgroundPlayerPool;
+import com.mb.exo_player.players.ForegroundPlaybackService;
+import com.mb.exo_player.players.PlayerComponents;
+import com.mb.exo_player.players.ServiceRegistry;
+import com.mb.exo_player.players.SoundEffectAudioPlayer;
+import com.mb.exo_player.sources.VariantSelector;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
@@ -39,65 +72,192 @@ import io.flutter.plugin.common.PluginRegistry.Registrar;
 /** MBExoPlayerPlugin */
 public class MBExoPlayerPlugin implements MethodCallHandler {
   private static final Logger LOGGER = Logger.getLogger(MBExoPlayerPlugin.class.getCanonicalName());
+  private static final int DEFAULT_LAZY_WINDOW_SIZE = 2;
 
   private final MethodChannel channel;
-  private final Handler handler = new Handler();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final PlayerEventStream eventStream = new PlayerEventStream(mainHandler);
+
+  //commands, player callbacks and position updates run on the playback thread,
+  //it is the application looper of all ExoPlayer instances
+  private final HandlerThread playbackThread;
+  private final Handler handler;
+  private final CommandMetrics commandMetrics = new CommandMetrics();
   private Runnable positionUpdates;
 
+  //batched position updates, one audio.onUpdates message per tick for all players
+  private boolean batchedUpdates = false;
+  private final Map<String, Long> lastDurations = new HashMap<>();
+
+  //per player position update intervals, adaptive players slow down while the app is in background
+  private final Map<String, PositionUpdateConfig> positionUpdateConfigs = new HashMap<>();
+  private int startedActivities = 0;
+  private boolean appInBackground = false;
+
   private final Map<String, AudioPlayer> audioPlayers = new HashMap<>();
+  private final BackgroundPlayerPool playerPool = new BackgroundPlayerPool();
   private Context context;
   private Activity activity;
 
-  private PlayerMode playerMode;
-  private AudioObject audioObject;
-  private final ArrayList<AudioObject> audioObjects = new ArrayList<>();
+  //playlists uploaded page by page, consumed by the next playAll or addItems of the player
+  private final Map<String, ArrayList<AudioObject>> uploadedPlaylists = new HashMap<>();
 
-
-  //temp variables for foreground player
-  private AudioPlayer tempPlayer;
-  private String tempPlayerId;
-  private boolean tempRepeatMode;
-  private boolean tempRespectAudioFocus;
-  private MBExoPlayerPlugin tempAudioPlayerPlugin;
-  private int tempIndex;
+  //all foreground players are sessions of one bound ForegroundPlaybackService
+  private ForegroundPlaybackService foregroundService;
+  private boolean bindingForegroundService = false;
+  private long bindRequestedAt;
+  //commands of foreground players created while the service is binding, replayed in order once it is bound
+  private final Map<String, ArrayList<PendingCommand>> pendingCommands = new LinkedHashMap<>();
 
   private ServiceConnection connection = new ServiceConnection() {
 
-    @SuppressWarnings("unchecked")
     @Override
-    public void onServiceConnected(ComponentName className, IBinder service) {
-      ForegroundAudioPlayer.LocalBinder binder = (ForegroundAudioPlayer.LocalBinder) service;
-      tempPlayer = binder.getService(); //just like  tempPlayer = ForegroundAudioPlayer();
-      tempPlayer.initAudioPlayer(tempAudioPlayerPlugin, tempAudioPlayerPlugin.activity, tempPlayerId);
-      tempPlayer.setPlayerAttributes(tempRepeatMode, tempRespectAudioFocus, playerMode);
-      if (playerMode == PlayerMode.PLAYLIST) {
-        tempPlayer.playAll((ArrayList<AudioObject>) audioObjects.clone(), tempIndex);
-      } else {
-        tempPlayer.play(audioObject);
-      }
-      audioPlayers.put(tempPlayerId, tempPlayer);
+    public void onServiceConnected(ComponentName className, final IBinder service) {
+      handler.post(new Runnable() {
+        @Override
+        public void run() {
+          onForegroundServiceBound(service);
+        }
+      });
     }
 
     @Override
-    public void onServiceDisconnected(ComponentName arg0) {}
+    public void onServiceDisconnected(ComponentName arg0) {
+      handler.post(new Runnable() {
+        @Override
+        public void run() {
+          foregroundService = null;
+        }
+      });
+    }
+  };
+
+  // the service released its sessions because the app's task was removed
+  private final ForegroundPlaybackService.Listener foregroundServiceListener = new ForegroundPlaybackService.Listener() {
+    @Override
+    public void onSessionsRemoved(List<String> playerIds) {
+      for (String playerId : playerIds) {
+        audioPlayers.remove(playerId);
+        lastDurations.remove(playerId);
+        positionUpdateConfigs.remove(playerId);
+      }
+      unbindForegroundServiceIfIdle();
+    }
   };
 
+  private void onForegroundServiceBound(IBinder service) {
+    if (!bindingForegroundService) {
+      return; // disposed while binding
+    }
+    bindingForegroundService = false;
+    commandMetrics.addServiceBindTime(System.nanoTime() - bindRequestedAt);
+    foregroundService = ((ForegroundPlaybackService.LocalBinder) service).getService();
+    foregroundService.setListener(foregroundServiceListener);
+    final ArrayList<Map.Entry<String, ArrayList<PendingCommand>>> pending = new ArrayList<>(pendingCommands.entrySet());
+    pendingCommands.clear();
+    for (Map.Entry<String, ArrayList<PendingCommand>> entry : pending) {
+      createForegroundSession(entry.getKey());
+      // the first command is the play/playAll call which created the session
+      for (PendingCommand command : entry.getValue()) {
+        dispatchMethodCall(command.getCall(), command.getResponse());
+      }
+    }
+  }
+
+  private AudioPlayer createForegroundSession(String playerId) {
+    AudioPlayer player = foregroundService.createSession(playerId);
+    player.initAudioPlayer(this, this.activity, playerId);
+    audioPlayers.put(playerId, player);
+    return player;
+  }
+
   /** Plugin registration. */
   public static void registerWith(Registrar registrar) {
     final MethodChannel channel = new MethodChannel(registrar.messenger(), "mb_exo_player");
-    channel.setMethodCallHandler(new MBExoPlayerPlugin(channel, registrar.activity()));
+    final MBExoPlayerPlugin plugin = new MBExoPlayerPlugin(channel, registrar.activity());
+    channel.setMethodCallHandler(plugin);
+    final EventChannel eventChannel = new EventChannel(registrar.messenger(), "mb_exo_player/events");
+    eventChannel.setStreamHandler(plugin.eventStream);
   }
 
   private MBExoPlayerPlugin(final MethodChannel channel, Activity activity) {
     this.channel = channel;
     this.activity = activity;
     this.context = activity.getApplicationContext();
+    this.playbackThread = new HandlerThread("MBExoPlayerPlayback", Process.THREAD_PRIORITY_AUDIO);
+    this.playbackThread.start();
+    this.handler = new Handler(playbackThread.getLooper());
     this.channel.setMethodCallHandler(this);
+    activity.getApplication().registerActivityLifecycleCallbacks(lifecycleCallbacks);
+    OfflineDownloads.setListener(new OfflineDownloads.Listener() {
+      @Override
+      public void onDownloadChanged(Map<String, Object> status) {
+        emit("audio.onDownloadChanged", null, status);
+      }
+    });
   }
 
+  private final Application.ActivityLifecycleCallbacks lifecycleCallbacks = new Application.ActivityLifecycleCallbacks() {
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+      startedActivities++;
+      setAppInBackground(false);
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {}
+
+    @Override
+    public void onActivityPaused(Activity activity) {}
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+      startedActivities = Math.max(startedActivities - 1, 0);
+      if (startedActivities == 0) {
+        setAppInBackground(true);
+      }
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {}
+  };
+
+
+  private void setAppInBackground(final boolean inBackground) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (appInBackground != inBackground) {
+          appInBackground = inBackground;
+          restartPositionUpdates();
+        }
+      }
+    });
+  }
 
   @Override
-  public void onMethodCall(final MethodCall call, final MethodChannel.Result response) {
+  public void onMethodCall(final MethodCall call, final MethodChannel.Result result) {
+    // only the hand-off happens on the main thread, the command runs on the playback thread
+    final long dispatchStart = System.nanoTime();
+    final MethodChannel.Result response = new MainThreadResult(result, mainHandler, commandMetrics, call.method);
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        final long start = System.nanoTime();
+        dispatchMethodCall(call, response);
+        commandMetrics.addPlaybackThreadTime(call.method, start - dispatchStart, System.nanoTime() - start);
+      }
+    });
+    commandMetrics.addMainThreadTime(call.method, System.nanoTime() - dispatchStart);
+  }
+
+  private void dispatchMethodCall(final MethodCall call, final MethodChannel.Result response) {
     try {
       handleMethodCall(call, response);
     } catch (Exception e) {
@@ -107,12 +267,18 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
     }
   }
 
-  @SuppressWarnings("unchecked")
   private void handleMethodCall(final MethodCall call, final MethodChannel.Result response) {
+    if (handlePluginMethodCall(call, response)) {
+      return;
+    }
     final String playerId = call.argument("playerId");
+    final ArrayList<PendingCommand> pending = pendingCommands.get(playerId);
+    if (pending != null) {
+      // the player's service is still binding, keep the command order
+      pending.add(new PendingCommand(call, response));
+      return;
+    }
     AudioPlayer player = null;
-    this.audioObjects.clear();
-    this.audioObject = null;
     if(audioPlayers.containsKey(playerId)){
       player = getPlayer(playerId);
     }
@@ -123,18 +289,42 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
           final boolean repeatMode = call.argument("repeatMode");
           final boolean respectAudioFocus = call.argument("respectAudioFocus");
           final boolean isBackground = call.argument("isBackground");
+          final boolean cacheBypass = configureCache(call);
+          final BufferConfig bufferConfig = buildBufferConfig(call);
+          final Boolean isSoundEffect = call.argument("isSoundEffect");
 
-          this.playerMode = PlayerMode.SINGLE;
-          if (isBackground) {
+          if (isSoundEffect != null && isSoundEffect) {
+            // init player as SoundEffectAudioPlayer instance, decoded clips are replayed from memory
+            final Integer maxVoices = call.argument("maxVoices");
+            final Integer soundEffectCacheMaxBytes = call.argument("soundEffectCacheMaxBytes");
+            if (soundEffectCacheMaxBytes != null) {
+              PcmCache.setMaxBytes(soundEffectCacheMaxBytes);
+            }
+            final AudioObject audioObject = new AudioObject(url);
+            if(player == null || player.isPlayerReleased()){
+              player = new SoundEffectAudioPlayer();
+              player.initAudioPlayer(this, this.activity, playerId);
+              audioPlayers.put(playerId, player);
+            }
+            if (maxVoices != null && player instanceof SoundEffectAudioPlayer) {
+              ((SoundEffectAudioPlayer) player).setMaxVoices(maxVoices);
+            }
+            player.setPlayerAttributes(false, respectAudioFocus, PlayerMode.SINGLE, null);
+            player.play(audioObject);
+          } else if (isBackground) {
             // init player as BackgroundAudioPlayer instance
-            this.audioObject = new AudioObject(url);
+            final AudioObject audioObject = new AudioObject(url);
+            applySourceType(audioObject, call);
+            applyVariants(audioObject, call);
             if(player != null && !player.isPlayerReleased()){
-              player.play(this.audioObject);
+              player.setBufferConfig(bufferConfig);
+              player.setCacheBypass(cacheBypass);
+              player.play(audioObject);
             }else{
-              player = new BackgroundAudioPlayer();
-              player.initAudioPlayer(this, this.activity, playerId);
-              player.setPlayerAttributes(repeatMode, respectAudioFocus, this.playerMode);
-              player.play(this.audioObject);
+              player = acquireBackgroundPlayer(playerId);
+              player.setPlayerAttributes(repeatMode, respectAudioFocus, PlayerMode.SINGLE, bufferConfig);
+              player.setCacheBypass(cacheBypass);
+              player.play(audioObject);
 
               audioPlayers.put(playerId, player);
             }
@@ -148,11 +338,11 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
             final int notificationModeInt = call.argument("notificationActionMode");
             final int notificationActionCallbackModeInt = call.argument("notificationActionCallbackMode");
 
-            this.tempPlayer = player;
-            this.tempPlayerId = playerId;
-            this.tempRepeatMode = repeatMode;
-            this.tempRespectAudioFocus = respectAudioFocus;
-            this.tempAudioPlayerPlugin = this;
+            if(player == null){
+              // init player as a session of the ForegroundPlaybackService, this call is replayed once it is bound
+              bindForegroundPlayer(playerId, call, response);
+              return;
+            }
 
             // NotificationActionMode notificationActionMode;
             // NotificationActionCallbackMode notificationActionCallbackMode;
@@ -172,89 +362,78 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
             //   notificationActionCallbackMode = NotificationActionCallbackMode.CUSTOM;
             // }
 
-            this.audioObject = new AudioObject(url, smallIconFileName, title, subTitle, largeIconUrl, isLocal
+            final AudioObject audioObject = new AudioObject(url, smallIconFileName, title, subTitle, largeIconUrl, isLocal
             // , notificationActionMode, notificationActionCallbackMode
             );
-            // init player as ForegroundAudioPlayer service
-            if(player != null && !player.isPlayerReleased()){
-              player.play(this.audioObject);
+            applySourceType(audioObject, call);
+            applyVariants(audioObject, call);
+            if(player.isPlayerReleased()){
+              player.setPlayerAttributes(repeatMode, respectAudioFocus, PlayerMode.SINGLE, bufferConfig);
             }else{
-              startForegroundPlayer();
+              player.setBufferConfig(bufferConfig);
             }
+            player.setCacheBypass(cacheBypass);
+            player.play(audioObject);
           }
           break;
         }
         case "playAll": {
-          final ArrayList<String> urls = call.argument("urls");
           final boolean repeatMode = call.argument("repeatMode");
           final boolean isBackground = call.argument("isBackground");
           final boolean respectAudioFocus = call.argument("respectAudioFocus");
           final int index = call.argument("index");
+          final boolean cacheBypass = configureCache(call);
+          final BufferConfig bufferConfig = buildBufferConfig(call);
+          final Boolean lazyArgument = call.argument("lazyPlaylist");
+          final Integer lazyWindowSizeArgument = call.argument("lazyWindowSize");
+          final boolean lazyPlaylist = lazyArgument != null && lazyArgument;
+          final int lazyWindowSize = lazyWindowSizeArgument != null ? lazyWindowSizeArgument : DEFAULT_LAZY_WINDOW_SIZE;
+          final Integer prefetchCountArgument = call.argument("prefetchCount");
+          final Number prefetchBytesArgument = call.argument("prefetchBytes");
+          final int prefetchCount = prefetchCountArgument != null ? prefetchCountArgument : 0;
+          final long prefetchBytes = prefetchBytesArgument != null ? prefetchBytesArgument.longValue() : 0;
 
-          this.playerMode = PlayerMode.PLAYLIST;
           if (isBackground) {
             // init player as BackgroundAudioPlayer instance
-            for(String url : urls){
-              this.audioObjects.add(new AudioObject(url));
-            }
+            final ArrayList<AudioObject> audioObjects = buildAudioObjects(call, true);
             if(player != null && !player.isPlayerReleased()){
-              player.playAll((ArrayList<AudioObject>) this.audioObjects.clone(), index);
+              player.setBufferConfig(bufferConfig);
+              player.setCacheBypass(cacheBypass);
+              player.setLazyPlaylist(lazyPlaylist, lazyWindowSize);
+              player.setPrefetch(prefetchCount, prefetchBytes);
+              player.playAll(audioObjects, index);
             }else{
-              player = new BackgroundAudioPlayer();
-              player.initAudioPlayer(this, this.activity, playerId);
-              player.setPlayerAttributes(repeatMode, respectAudioFocus, this.playerMode);
-              player.playAll((ArrayList<AudioObject>) this.audioObjects.clone(), index);
+              player = acquireBackgroundPlayer(playerId);
+              player.setPlayerAttributes(repeatMode, respectAudioFocus, PlayerMode.PLAYLIST, bufferConfig);
+              player.setCacheBypass(cacheBypass);
+              player.setLazyPlaylist(lazyPlaylist, lazyWindowSize);
+              player.setPrefetch(prefetchCount, prefetchBytes);
+              player.playAll(audioObjects, index);
 
               audioPlayers.put(playerId, player);
             }
           } else {
-            final ArrayList<String> smallIconFileNames = call.argument("smallIconFileNames");
-            final ArrayList<String> titles = call.argument("titles");
-            final ArrayList<String> subTitles = call.argument("subTitles");
-            final ArrayList<String> largeIconUrls = call.argument("largeIconUrls");
-            final ArrayList<Boolean> isLocals = call.argument("isLocals");
-            final ArrayList<Integer> notificationModeInts = call.argument("notificationModes");
-            final ArrayList<Integer> notificationActionCallbackModeInts = call.argument("notificationActionCallbackModes");
-
-            this.tempPlayer = player;
-            this.tempPlayerId = playerId;
-            this.tempRepeatMode = repeatMode;
-            this.tempRespectAudioFocus = respectAudioFocus;
-            this.tempAudioPlayerPlugin = this;
-            this.tempIndex = index;
-
-            for(int i = 0; i < urls.size(); i++ ){
-              NotificationActionMode notificationActionMode;
-              NotificationActionCallbackMode notificationActionCallbackMode;
-              if (notificationModeInts.get(i) == 0) {
-                notificationActionMode = NotificationActionMode.NONE;
-              } else if (notificationModeInts.get(i) == 1) {
-                notificationActionMode = NotificationActionMode.NEXT;
-              } else if (notificationModeInts.get(i) == 2){
-                notificationActionMode = NotificationActionMode.PREVIOUS;
-              }else{
-                notificationActionMode = NotificationActionMode.ALL;
-              }
-
-              if(notificationActionCallbackModeInts.get(i) == 0){
-                notificationActionCallbackMode = NotificationActionCallbackMode.DEFAULT;
-              }else{
-                notificationActionCallbackMode = NotificationActionCallbackMode.CUSTOM;
-              }
-
-              this.audioObjects.add(new AudioObject(urls.get(i), smallIconFileNames.get(i), titles.get(i), subTitles.get(i), largeIconUrls.get(i), isLocals.get(i)
-              // , notificationActionMode, notificationActionCallbackMode
-              ));
+            if(player == null){
+              // init player as a session of the ForegroundPlaybackService, this call is replayed once it is bound
+              bindForegroundPlayer(playerId, call, response);
+              return;
             }
-            // init player as ForegroundAudioPlayer service
-            if(player != null && !player.isPlayerReleased()){
-              player.playAll((ArrayList<AudioObject>) this.audioObjects.clone(), index);
+            if(player.isPlayerReleased()){
+              player.setPlayerAttributes(repeatMode, respectAudioFocus, PlayerMode.PLAYLIST, bufferConfig);
             }else{
-              startForegroundPlayer();
+              player.setBufferConfig(bufferConfig);
             }
+            player.setCacheBypass(cacheBypass);
+            player.setLazyPlaylist(lazyPlaylist, lazyWindowSize);
+            player.setPrefetch(prefetchCount, prefetchBytes);
+            player.playAll(buildAudioObjects(call, false), index);
           }
           break;
         }
+        case "preload": {
+          player.preload(buildAudioObject(call, player.isBackground()));
+          break;
+        }
         case "next": {
           player.next();
           break;
@@ -276,11 +455,15 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
           break;
         }
         case "release": {
-          if(!player.isBackground() && !player.isPlayerReleased()){
-            this.context.unbindService(connection);
-          }
           audioPlayers.remove(player.getPlayerId());
-          player.release();
+          lastDurations.remove(player.getPlayerId());
+          positionUpdateConfigs.remove(player.getPlayerId());
+          if(!(player instanceof BackgroundAudioPlayer) || !playerPool.recycle((BackgroundAudioPlayer) player)){
+            player.release();
+          }
+          if(!player.isBackground()){
+            unbindForegroundServiceIfIdle();
+          }
           break;
         }
         case "seekPosition": {
@@ -311,6 +494,40 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
           response.success(player.getCurrentPlayingAudioIndex());
           return;
         }
+        case "getStartupLatency": {
+          response.success(player.getStartupLatency());
+          return;
+        }
+        case "getMetrics": {
+          response.success(player.getMetrics());
+          return;
+        }
+        case "resetMetrics": {
+          player.resetMetrics();
+          break;
+        }
+        case "addItems": {
+          final int index = call.argument("index");
+          player.addItems(buildAudioObjects(call, player.isBackground()), index);
+          break;
+        }
+        case "removeRange": {
+          final int fromIndex = call.argument("fromIndex");
+          final int toIndex = call.argument("toIndex");
+          player.removeRange(fromIndex, toIndex);
+          break;
+        }
+        case "moveItem": {
+          final int fromIndex = call.argument("fromIndex");
+          final int toIndex = call.argument("toIndex");
+          player.moveItem(fromIndex, toIndex);
+          break;
+        }
+        case "replaceItem": {
+          final int index = call.argument("index");
+          player.replaceItem(index, buildAudioObject(call, player.isBackground()));
+          break;
+        }
         case "setRepeatMode": {
           final boolean repeatMode = call.argument("repeatMode");
           player.setRepeatMode(repeatMode);
@@ -331,55 +548,339 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
     }
   }
 
+  // handles calls which are not bound to a single player, returns true if call was handled
+  private boolean handlePluginMethodCall(final MethodCall call, final MethodChannel.Result response) {
+    switch (call.method) {
+      case "getCacheStats": {
+        final Map<String, Object> stats = MediaCache.getStats();
+        stats.put("soundEffects", PcmCache.getStats());
+        stats.put("artwork", ArtworkCache.getStats());
+        stats.put("prefetch", Prefetcher.getStats());
+        response.success(stats);
+        return true;
+      }
+      case "configurePlayerPool": {
+        final int size = call.argument("size");
+        playerPool.setMaxSize(size);
+        playerPool.warmUp(this, this.activity);
+        response.success(2); //success
+        return true;
+      }
+      case "setBatchedUpdates": {
+        final boolean enabled = call.argument("enabled");
+        this.batchedUpdates = enabled;
+        this.lastDurations.clear();
+        response.success(2); //success
+        return true;
+      }
+      case "setPositionUpdateInterval": {
+        final String playerId = call.argument("playerId");
+        final Integer intervalMs = call.argument("intervalMs");
+        final Boolean adaptive = call.argument("adaptive");
+        final PositionUpdateConfig config = getPositionUpdateConfig(playerId);
+        if (intervalMs != null) {
+          config.setIntervalMs(intervalMs);
+        }
+        if (adaptive != null) {
+          config.setAdaptive(adaptive);
+        }
+        restartPositionUpdates();
+        response.success(2); //success
+        return true;
+      }
+      case "setPositionListenerActive": {
+        final String playerId = call.argument("playerId");
+        final boolean active = call.argument("active");
+        getPositionUpdateConfig(playerId).setListenerActive(active);
+        restartPositionUpdates();
+        response.success(2); //success
+        return true;
+      }
+      case "uploadPlaylistPage": {
+        final String playerId = call.argument("playerId");
+        final byte[] packedPlaylist = call.argument("packedPlaylist");
+        final boolean isBackground = call.argument("isBackground");
+        final boolean reset = call.argument("reset");
+        ArrayList<AudioObject> uploaded = uploadedPlaylists.get(playerId);
+        if (uploaded == null || reset) {
+          uploaded = new ArrayList<>();
+          uploadedPlaylists.put(playerId, uploaded);
+        }
+        uploaded.addAll(PlaylistCodec.decode(packedPlaylist, isBackground));
+        response.success(2); //success
+        return true;
+      }
+      case "getCommandMetrics": {
+        response.success(commandMetrics.getStats());
+        return true;
+      }
+      case "resetCommandMetrics": {
+        commandMetrics.reset();
+        response.success(2); //success
+        return true;
+      }
+      case "getPoolStats": {
+        response.success(playerPool.getStats());
+        return true;
+      }
+      case "configureHttp": {
+        final Integer connectTimeoutMs = call.argument("connectTimeoutMs");
+        final Integer readTimeoutMs = call.argument("readTimeoutMs");
+        final Map<String, String> headers = call.argument("headers");
+        HttpStack.configure(connectTimeoutMs != null ? connectTimeoutMs : 0, readTimeoutMs != null ? readTimeoutMs : 0, headers);
+        response.success(2); //success
+        return true;
+      }
+      case "getHttpStats": {
+        response.success(HttpStack.getStats());
+        return true;
+      }
+      case "setRetryPolicy": {
+        final int maxLoadRetries = call.argument("maxLoadRetries");
+        final int maxPlayerRetries = call.argument("maxPlayerRetries");
+        final int initialDelayMs = call.argument("initialDelayMs");
+        final int maxDelayMs = call.argument("maxDelayMs");
+        final boolean retryClientErrors = call.argument("retryClientErrors");
+        RetryPolicy.set(new RetryPolicy(maxLoadRetries, maxPlayerRetries, initialDelayMs, maxDelayMs, retryClientErrors));
+        response.success(2); //success
+        return true;
+      }
+      case "downloadPlaylist": {
+        final Integer maxParallelDownloads = call.argument("maxParallelDownloads");
+        OfflineDownloads.download(this.context, buildAudioObjects(call, true),
+            maxParallelDownloads != null ? maxParallelDownloads : 0);
+        response.success(2); //success
+        return true;
+      }
+      case "removeDownload": {
+        final String url = call.argument("url");
+        OfflineDownloads.remove(this.context, url);
+        response.success(2); //success
+        return true;
+      }
+      case "pauseDownloads": {
+        OfflineDownloads.pause(this.context);
+        response.success(2); //success
+        return true;
+      }
+      case "resumeDownloads": {
+        OfflineDownloads.resume(this.context);
+        response.success(2); //success
+        return true;
+      }
+      case "getDownloads": {
+        response.success(OfflineDownloads.getDownloads(this.context));
+        return true;
+      }
+      case "setAudioOnlyRenderers": {
+        final boolean enabled = call.argument("enabled");
+        PlayerComponents.setAudioOnlyRenderers(enabled);
+        response.success(2); //success
+        return true;
+      }
+      case "getPlayerConstructionStats": {
+        response.success(PlayerComponents.getConstructionStats());
+        return true;
+      }
+      case "resetPlayerConstructionStats": {
+        PlayerComponents.resetConstructionStats();
+        response.success(2); //success
+        return true;
+      }
+      default:
+        return false;
+    }
+  }
+
+  // builds playlist items from the parallel lists of playAll/addItems call
+  private ArrayList<AudioObject> buildAudioObjects(final MethodCall call, boolean isBackground) {
+    final Boolean uploadedPlaylist = call.argument("uploadedPlaylist");
+    if (uploadedPlaylist != null && uploadedPlaylist) {
+      final ArrayList<AudioObject> uploaded = uploadedPlaylists.remove(call.<String>argument("playerId"));
+      return uploaded != null ? resolveDownloads(uploaded) : new ArrayList<AudioObject>();
+    }
+    if (call.hasArgument("packedPlaylist")) {
+      final byte[] packedPlaylist = call.argument("packedPlaylist");
+      return resolveDownloads(PlaylistCodec.decode(packedPlaylist, isBackground));
+    }
+    final ArrayList<String> urls = call.argument("urls");
+    final ArrayList<AudioObject> audioObjects = new ArrayList<>(urls.size());
+    if (isBackground || !call.hasArgument("titles")) {
+      for(String url : urls){
+        audioObjects.add(new AudioObject(url));
+      }
+      return audioObjects;
+    }
+    final ArrayList<String> smallIconFileNames = call.argument("smallIconFileNames");
+    final ArrayList<String> titles = call.argument("titles");
+    final ArrayList<String> subTitles = call.argument("subTitles");
+    final ArrayList<String> largeIconUrls = call.argument("largeIconUrls");
+    final ArrayList<Boolean> isLocals = call.argument("isLocals");
+    final ArrayList<Integer> notificationModeInts = call.argument("notificationModes");
+    final ArrayList<Integer> notificationActionCallbackModeInts = call.argument("notificationActionCallbackModes");
+
+    for(int i = 0; i < urls.size(); i++ ){
+      NotificationActionMode notificationActionMode;
+      NotificationActionCallbackMode notificationActionCallbackMode;
+      if (notificationModeInts.get(i) == 0) {
+        notificationActionMode = NotificationActionMode.NONE;
+      } else if (notificationModeInts.get(i) == 1) {
+        notificationActionMode = NotificationActionMode.NEXT;
+      } else if (notificationModeInts.get(i) == 2){
+        notificationActionMode = NotificationActionMode.PREVIOUS;
+      }else{
+        notificationActionMode = NotificationActionMode.ALL;
+      }
+
+      if(notificationActionCallbackModeInts.get(i) == 0){
+        notificationActionCallbackMode = NotificationActionCallbackMode.DEFAULT;
+      }else{
+        notificationActionCallbackMode = NotificationActionCallbackMode.CUSTOM;
+      }
+
+      audioObjects.add(new AudioObject(urls.get(i), smallIconFileNames.get(i), titles.get(i), subTitles.get(i), largeIconUrls.get(i), isLocals.get(i)
+      // , notificationActionMode, notificationActionCallbackMode
+      ));
+    }
+    return audioObjects;
+  }
+
+  private AudioObject buildAudioObject(final MethodCall call, boolean isBackground) {
+    final String url = call.argument("url");
+    final AudioObject audioObject;
+    if (isBackground || !call.hasArgument("title")) {
+      audioObject = new AudioObject(url);
+    } else {
+      final String smallIconFileName = call.argument("smallIconFileName");
+      final String title = call.argument("title");
+      final String subTitle = call.argument("subTitle");
+      final String largeIconUrl = call.argument("largeIconUrl");
+      final boolean isLocal = call.argument("isLocal");
+      audioObject = new AudioObject(url, smallIconFileName, title, subTitle, largeIconUrl, isLocal);
+    }
+    applySourceType(audioObject, call);
+    applyVariants(audioObject, call);
+    return audioObject;
+  }
+
+  // variantUrls and variantBitrates are parallel lists, bitrates in bits per second
+  private void applyVariants(AudioObject audioObject, final MethodCall call) {
+    final List<String> urls = call.argument("variantUrls");
+    final List<Integer> bitrates = call.argument("variantBitrates");
+    if (urls == null || bitrates == null || urls.size() != bitrates.size()) {
+      return;
+    }
+    final ArrayList<AudioVariant> variants = new ArrayList<>(urls.size());
+    for (int i = 0; i < urls.size(); i++) {
+      variants.add(new AudioVariant(urls.get(i), bitrates.get(i)));
+    }
+    audioObject.setVariants(variants);
+    VariantSelector.resolveDownload(this.context, audioObject);
+  }
+
+  private ArrayList<AudioObject> resolveDownloads(ArrayList<AudioObject> audioObjects) {
+    for (AudioObject audioObject : audioObjects) {
+      VariantSelector.resolveDownload(this.context, audioObject);
+    }
+    return audioObjects;
+  }
+
+  // sourceType is an index into SourceType, AUTO detects the type from mimeType or the url
+  private void applySourceType(AudioObject audioObject, final MethodCall call) {
+    final Integer sourceType = call.argument("sourceType");
+    if (sourceType != null && sourceType >= 0 && sourceType < SourceType.values().length) {
+      audioObject.setSourceType(SourceType.values()[sourceType]);
+    }
+    audioObject.setMimeType(call.<String>argument("mimeType"));
+  }
+
+  // applies cache configuration of play/playAll call, returns whether the player should bypass the cache
+  private boolean configureCache(final MethodCall call) {
+    final String cacheDirectory = call.argument("cacheDirectory");
+    final Number cacheMaxBytes = call.argument("cacheMaxBytes");
+    final Boolean cacheBypass = call.argument("cacheBypass");
+    if (cacheDirectory != null || cacheMaxBytes != null) {
+      MediaCache.configure(this.context, cacheDirectory, cacheMaxBytes != null ? cacheMaxBytes.longValue() : 0);
+    }
+    return cacheBypass != null && cacheBypass;
+  }
+
+  // null keeps the player's current buffer config
+  private BufferConfig buildBufferConfig(final MethodCall call) {
+    final Integer profileIndex = call.argument("bufferProfile");
+    if (profileIndex == null || profileIndex < 0 || profileIndex >= BufferProfile.values().length) {
+      return null;
+    }
+    final BufferProfile profile = BufferProfile.values()[profileIndex];
+    if (profile != BufferProfile.CUSTOM) {
+      return BufferConfig.forProfile(profile);
+    }
+    return new BufferConfig(profile,
+        intArgument(call, "minBufferMs", DefaultLoadControl.DEFAULT_MIN_BUFFER_MS),
+        intArgument(call, "maxBufferMs", DefaultLoadControl.DEFAULT_MAX_BUFFER_MS),
+        intArgument(call, "bufferForPlaybackMs", DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS),
+        intArgument(call, "bufferForPlaybackAfterRebufferMs", DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS),
+        intArgument(call, "targetBufferBytes", DefaultLoadControl.DEFAULT_TARGET_BUFFER_BYTES));
+  }
+
+  private int intArgument(final MethodCall call, String key, int defaultValue) {
+    final Integer value = call.argument(key);
+    return value != null ? value : defaultValue;
+  }
+
   public void handleNotificationActionCallback(AudioPlayer audioplayer, NotificationActionName notificationActionName){
     switch(notificationActionName){
       case PREVIOUS:
-        channel.invokeMethod("audio.onNotificationActionCallback",buildArguments(audioplayer.getPlayerId(), 0));
+        emit("audio.onNotificationActionCallback", audioplayer.getPlayerId(), 0);
         break;
       case NEXT:
-        channel.invokeMethod("audio.onNotificationActionCallback",buildArguments(audioplayer.getPlayerId(), 1));
+        emit("audio.onNotificationActionCallback", audioplayer.getPlayerId(), 1);
         break;
       case PLAY:
-        channel.invokeMethod("audio.onNotificationActionCallback",buildArguments(audioplayer.getPlayerId(), 2));
+        emit("audio.onNotificationActionCallback", audioplayer.getPlayerId(), 2);
         break;
       case PAUSE:
-        channel.invokeMethod("audio.onNotificationActionCallback",buildArguments(audioplayer.getPlayerId(), 3));
+        emit("audio.onNotificationActionCallback", audioplayer.getPlayerId(), 3);
         break;
     }
   }
 
   public void handleAudioSessionIdChange(AudioPlayer audioplayer, int audioSessionId){
-    channel.invokeMethod("audio.onAudioSessionIdChange",buildArguments(audioplayer.getPlayerId(), audioSessionId));
+    emit("audio.onAudioSessionIdChange", audioplayer.getPlayerId(), audioSessionId);
+  }
+
+  public void handleError(AudioPlayer audioplayer, Map<String, Object> error){
+    emit("audio.onError", audioplayer.getPlayerId(), error);
   }
 
   public void handlePlayerIndex(AudioPlayer audioplayer) {
-    channel.invokeMethod("audio.onCurrentPlayingAudioIndexChange",buildArguments(audioplayer.getPlayerId(), audioplayer.getCurrentPlayingAudioIndex()));
+    emit("audio.onCurrentPlayingAudioIndexChange", audioplayer.getPlayerId(), audioplayer.getCurrentPlayingAudioIndex());
   }
 
   public void handleStateChange(AudioPlayer audioplayer, PlayerState playerState) {
     switch (playerState) {
       case RELEASED: { // -1
-        channel.invokeMethod("audio.onStateChanged",buildArguments(audioplayer.getPlayerId(), -1));
+        emit("audio.onStateChanged", audioplayer.getPlayerId(), -1);
         break;
       }
       case STOPPED: { // 0
-        channel.invokeMethod("audio.onStateChanged", buildArguments(audioplayer.getPlayerId(), 0));
+        emit("audio.onStateChanged", audioplayer.getPlayerId(), 0);
         break;
       }
       case BUFFERING: { // 1
-        channel.invokeMethod("audio.onStateChanged",buildArguments(audioplayer.getPlayerId(), 1));
+        emit("audio.onStateChanged", audioplayer.getPlayerId(), 1);
         break;
       }
       case PLAYING: { // 2
-        channel.invokeMethod("audio.onStateChanged", buildArguments(audioplayer.getPlayerId(), 2));
+        emit("audio.onStateChanged", audioplayer.getPlayerId(), 2);
         break;
       }
       case PAUSED: { // 3
-        channel.invokeMethod("audio.onStateChanged",buildArguments(audioplayer.getPlayerId(), 3));
+        emit("audio.onStateChanged", audioplayer.getPlayerId(), 3);
         break;
       }
       case COMPLETED: { // 4
-        channel.invokeMethod("audio.onStateChanged",buildArguments(audioplayer.getPlayerId(), 4));
+        emit("audio.onStateChanged", audioplayer.getPlayerId(), 4);
         break;
       }
     }
@@ -394,12 +895,54 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
     return audioPlayers.get(playerId);
   }
 
-  private void startForegroundPlayer(){
-    if(!isMyServiceRunning(ForegroundAudioPlayer.class)){
-      ContextCompat.startForegroundService(this.context, new Intent(this.context, ForegroundAudioPlayer.class));
-      this.context.bindService(new Intent(this.context, ForegroundAudioPlayer.class), connection, Context.BIND_AUTO_CREATE);
-    }else{
-      Log.e("MBExoPlayerPlugin", "Can't start more than 1 service at a time, to stop service call release method");
+  private AudioPlayer acquireBackgroundPlayer(String playerId) {
+    AudioPlayer player = playerPool.acquire(this, this.activity, playerId);
+    // refill the pool after the current command is done
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        playerPool.warmUp(MBExoPlayerPlugin.this, activity);
+      }
+    });
+    return player;
+  }
+
+  private void bindForegroundPlayer(String playerId, MethodCall call, MethodChannel.Result response){
+    if(foregroundService != null){
+      // service already runs other sessions, add one more
+      createForegroundSession(playerId);
+      handleMethodCall(call, response);
+      return;
+    }
+    final ArrayList<PendingCommand> commands = new ArrayList<>();
+    commands.add(new PendingCommand(call, response));
+    pendingCommands.put(playerId, commands);
+    if(!bindingForegroundService){
+      bindingForegroundService = true;
+      bindRequestedAt = System.nanoTime();
+      if(!ServiceRegistry.isRunning(ForegroundPlaybackService.class)){
+        ContextCompat.startForegroundService(this.context, new Intent(this.context, ForegroundPlaybackService.class));
+      }
+      if(!this.context.bindService(new Intent(this.context, ForegroundPlaybackService.class), connection, Context.BIND_AUTO_CREATE)){
+        // the connection is never called back, the waiting commands would hang forever
+        this.context.unbindService(connection);
+        bindingForegroundService = false;
+        for (ArrayList<PendingCommand> pending : pendingCommands.values()) {
+          for (PendingCommand command : pending) {
+            command.getResponse().error("SERVICE_UNAVAILABLE", "Binding ForegroundPlaybackService failed!", null);
+          }
+        }
+        pendingCommands.clear();
+      }
+    }
+  }
+
+  // the service stops itself with its last session, the plugin lets go of it as well
+  private void unbindForegroundServiceIfIdle(){
+    if(foregroundService != null && foregroundService.getSessionCount() == 0){
+      foregroundService.setListener(null);
+      this.context.unbindService(connection);
+      foregroundService = null;
     }
   }
 
@@ -412,8 +955,106 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
   }
 
   private void stopPositionUpdates() {
+    handler.removeCallbacks(positionUpdates);
     positionUpdates = null;
-    handler.removeCallbacksAndMessages(null);
+  }
+
+  // applies changed intervals right away instead of after the pending tick
+  private void restartPositionUpdates() {
+    for (PositionUpdateConfig config : positionUpdateConfigs.values()) {
+      config.resetSchedule();
+    }
+    if (positionUpdates != null) {
+      handler.removeCallbacks(positionUpdates);
+      handler.post(positionUpdates);
+    }
+  }
+
+  private PositionUpdateConfig getPositionUpdateConfig(String playerId) {
+    PositionUpdateConfig config = positionUpdateConfigs.get(playerId);
+    if (config == null) {
+      config = new PositionUpdateConfig();
+      positionUpdateConfigs.put(playerId, config);
+    }
+    return config;
+  }
+
+  // returns true if the player should be sent an update on this tick
+  private boolean consumePositionUpdate(String playerId, long now) {
+    return getPositionUpdateConfig(playerId).consumeUpdate(now, appInBackground);
+  }
+
+  // sound effects are fire and forget, see SoundEffectAudioPlayer
+  private static boolean sendsPositionUpdates(AudioPlayer player) {
+    return !(player instanceof SoundEffectAudioPlayer);
+  }
+
+  // time until the next playing player is due for an update
+  private long getNextPositionUpdateDelay(Map<String, AudioPlayer> audioPlayers, long now) {
+    long delay = Long.MAX_VALUE;
+    for (AudioPlayer player : audioPlayers.values()) {
+      if (sendsPositionUpdates(player) && player.isPlaying()) {
+        delay = Math.min(delay, getPositionUpdateConfig(player.getPlayerId()).getNextUpdateAt() - now);
+      }
+    }
+    return delay == Long.MAX_VALUE ? PositionUpdateConfig.DEFAULT_INTERVAL_MS : Math.max(delay, 1);
+  }
+
+  // sends position, buffered position, state and changed durations of all players in one message,
+  // returns true if none of the players is playing
+  private boolean sendBatchedUpdates(Map<String, AudioPlayer> audioPlayers, long now) {
+    boolean nonePlaying = true;
+    // a new list per tick, it is encoded later on the main thread
+    final List<Map<String, Object>> batchedUpdateList = new ArrayList<>();
+    for (AudioPlayer player : audioPlayers.values()) {
+      if (!sendsPositionUpdates(player)) {
+        continue;
+      }
+      final boolean playing = player.isPlaying();
+      if (!playing && !player.isPlayerCompleted()) {
+        continue;
+      }
+      if (playing) {
+        nonePlaying = false;
+      }
+      final String playerId = player.getPlayerId();
+      if (!consumePositionUpdate(playerId, now)) {
+        continue;
+      }
+      final Map<String, Object> entry = new HashMap<>();
+      entry.put("playerId", playerId);
+      try {
+        final long duration = player.getDuration();
+        final Long lastDuration = lastDurations.get(playerId);
+        if (lastDuration == null || lastDuration != duration) {
+          lastDurations.put(playerId, duration);
+          entry.put("duration", duration);
+        }
+        entry.put("position", player.getCurrentPosition());
+        entry.put("bufferedPosition", player.getBufferedPosition());
+        entry.put("state", playing ? 2 : 4);
+        batchedUpdateList.add(entry);
+      } catch(UnsupportedOperationException e) {
+
+      }
+    }
+    if (!batchedUpdateList.isEmpty()) {
+      emit("audio.onUpdates", null, batchedUpdateList);
+    }
+    return nonePlaying;
+  }
+
+  // sends an event on the event channel while Dart listens to it, otherwise on the method channel,
+  // channels may only be used from the main thread
+  private void emit(final String method, final String playerId, final Object value) {
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (!eventStream.emit(method, playerId, value)) {
+          channel.invokeMethod(method, buildArguments(playerId, value));
+        }
+      }
+    });
   }
 
   private static Map<String, Object> buildArguments(String playerId, Object value) {
@@ -426,25 +1067,36 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
   private void dispose() {
     for (AudioPlayer player : audioPlayers.values()) {
       if(player.isPlayerInitialized()){
-        if(!player.isBackground() && !player.isPlayerReleased()){
-          this.context.unbindService(connection);
-        }
         player.release();
       }
     }
     audioPlayers.clear();
-  }
-
-  @SuppressWarnings( "deprecation" )
-  private boolean isMyServiceRunning(Class<?> serviceClass) {
-    ActivityManager manager = (ActivityManager) this.context.getSystemService(Context.ACTIVITY_SERVICE);
-    for (ActivityManager.RunningServiceInfo service : manager.getRunningServices(Integer.MAX_VALUE)) {
-      if (serviceClass.getName().equals(service.service.getClassName())) {
-        return true;
+    playerPool.clear();
+    uploadedPlaylists.clear();
+    if (foregroundService != null || bindingForegroundService) {
+      if (foregroundService != null) {
+        foregroundService.setListener(null);
+      }
+      this.context.unbindService(connection);
+      foregroundService = null;
+      bindingForegroundService = false;
+    }
+    for (ArrayList<PendingCommand> commands : pendingCommands.values()) {
+      for (PendingCommand command : commands) {
+        command.getResponse().success(1); //fail
       }
     }
-    return false;
+    pendingCommands.clear();
+    activity.getApplication().unregisterActivityLifecycleCallbacks(lifecycleCallbacks);
+    stopPositionUpdates();
+    // the players are released, let the thread finish what is already queued and end
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      playbackThread.quitSafely();
+    } else {
+      playbackThread.quit();
+    }
   }
+
   private static final class UpdateCallback implements Runnable {
 
     private final WeakReference<Map<String, AudioPlayer>> audioPlayers;
@@ -474,18 +1126,35 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
         return;
       }
 
+      final long now = SystemClock.elapsedRealtime();
+      if (audioPlayerPlugin.batchedUpdates) {
+        if (audioPlayerPlugin.sendBatchedUpdates(audioPlayers, now)) {
+          audioPlayerPlugin.stopPositionUpdates();
+        } else {
+          handler.postDelayed(this, audioPlayerPlugin.getNextPositionUpdateDelay(audioPlayers, now));
+        }
+        return;
+      }
+
       boolean nonePlaying = true;
       for (AudioPlayer player : audioPlayers.values()) {
+        if (!sendsPositionUpdates(player)) {
+          continue;
+        }
+        final boolean due = audioPlayerPlugin.consumePositionUpdate(player.getPlayerId(), now);
         if (!player.isPlaying()) {
-          if(player.isPlayerCompleted()){
-            channel.invokeMethod("audio.onDurationChanged",buildArguments(player.getPlayerId(), player.getDuration()));
+          if(player.isPlayerCompleted() && due){
+            audioPlayerPlugin.emit("audio.onDurationChanged", player.getPlayerId(), player.getDuration());
           }
           continue;
         }
+        nonePlaying = false;
+        if (!due) {
+          continue;
+        }
         try {
-          nonePlaying = false;
-          channel.invokeMethod("audio.onDurationChanged",buildArguments(player.getPlayerId(), player.getDuration()));
-          channel.invokeMethod("audio.onCurrentPositionChanged", buildArguments(player.getPlayerId(), player.getCurrentPosition()));
+          audioPlayerPlugin.emit("audio.onDurationChanged", player.getPlayerId(), player.getDuration());
+          audioPlayerPlugin.emit("audio.onCurrentPositionChanged", player.getPlayerId(), player.getCurrentPosition());
         } catch(UnsupportedOperationException e) {
 
         }
@@ -494,7 +1163,7 @@ public class MBExoPlayerPlugin implements MethodCallHandler {
       if (nonePlaying) {
         audioPlayerPlugin.stopPositionUpdates();
       } else {
-        handler.postDelayed(this, 200);
+        handler.postDelayed(this, audioPlayerPlugin.getNextPositionUpdateDelay(audioPlayers, now));
       }
     }
   }
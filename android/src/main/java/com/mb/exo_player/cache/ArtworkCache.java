@@ -0,0 +1,252 @@
+package com.mb.exo_player.cache;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.mb.exo_player.interfaces.AsyncResponse;
+import com.mb.exo_player.notifications.LoadImageFromUrl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notification artwork keyed by largeIconUrl, kept in a memory LRU and a disk LRU.
+ *
+ * Bitmaps are decoded downsampled to the notification large icon size, concurrent loads of the
+ * same url share one fetch. Loads may be started from any thread with a looper, each callback is
+ * delivered on the looper of the thread which asked for it.
+ */
+public class ArtworkCache {
+    private static final String DISK_DIRECTORY = "mb_exo_player_artwork";
+    private static final long MAX_DISK_BYTES = 10 * 1024 * 1024;
+    private static final int MAX_MEMORY_BYTES = 4 * 1024 * 1024;
+
+    private static LruCache<String, Bitmap> memoryCache;
+    private static File diskDirectory;
+    //guarded by ArtworkCache.class like the caches
+    private static final Map<String, List<PendingResponse>> pendingLoads = new HashMap<>();
+
+    //stats
+    private static final AtomicLong memoryHits = new AtomicLong();
+    private static final AtomicLong diskHits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong sharedLoads = new AtomicLong();
+
+    private static final class PendingResponse {
+        final AsyncResponse response;
+        final Handler handler;
+
+        PendingResponse(AsyncResponse response, Handler handler) {
+            this.response = response;
+            this.handler = handler;
+        }
+    }
+
+    private ArtworkCache() {}
+
+    public static void load(Context context, final String url, boolean isLocal, AsyncResponse response) {
+        Bitmap cached = getMemoryCache().get(url);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            response.processFinish(Collections.singletonMap(url, cached));
+            return;
+        }
+        PendingResponse pendingResponse = new PendingResponse(response, new Handler(Looper.myLooper()));
+        synchronized (ArtworkCache.class) {
+            List<PendingResponse> waiting = pendingLoads.get(url);
+            if (waiting != null) {
+                // same cover already on its way, e.g. repeated covers of a playlist
+                sharedLoads.incrementAndGet();
+                waiting.add(pendingResponse);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(pendingResponse);
+            pendingLoads.put(url, waiting);
+        }
+
+        initDiskDirectory(context);
+        Resources resources = context.getResources();
+        int width = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        int height = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+        new LoadImageFromUrl(url, isLocal, width, height, new AsyncResponse() {
+            @Override
+            public void processFinish(final Map<String, Bitmap> bitmapMap) {
+                if (bitmapMap != null && bitmapMap.get(url) != null) {
+                    getMemoryCache().put(url, bitmapMap.get(url));
+                }
+                List<PendingResponse> responses;
+                synchronized (ArtworkCache.class) {
+                    responses = pendingLoads.remove(url);
+                }
+                if (responses == null) {
+                    return;
+                }
+                // finished on the main thread, callers like MediaNotificationManager may run on another one
+                for (final PendingResponse waitingResponse : responses) {
+                    waitingResponse.handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            waitingResponse.response.processFinish(bitmapMap);
+                        }
+                    });
+                }
+            }
+        }).execute();
+    }
+
+    // largest power of two that keeps the decoded image at least as big as the target
+    public static int calculateInSampleSize(BitmapFactory.Options bounds, int width, int height) {
+        int inSampleSize = 1;
+        if (width <= 0 || height <= 0) {
+            return inSampleSize;
+        }
+        while (bounds.outWidth / (inSampleSize * 2) >= width && bounds.outHeight / (inSampleSize * 2) >= height) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    // called on the loading thread
+    @Nullable
+    public static Bitmap readFromDisk(String url) {
+        File file = getDiskFile(url);
+        if (file == null || !file.exists()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
+        if (bitmap != null) {
+            diskHits.incrementAndGet();
+            file.setLastModified(System.currentTimeMillis());
+        } else {
+            misses.incrementAndGet();
+        }
+        return bitmap;
+    }
+
+    // called on the loading thread with the already downsampled bitmap
+    public static void writeToDisk(String url, Bitmap bitmap) {
+        File file = getDiskFile(url);
+        if (file == null) {
+            return;
+        }
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            Log.e("MBExoPlayerPlugin", "Failed caching image!");
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        trimDisk();
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("sharedLoads", sharedLoads.get());
+        synchronized (ArtworkCache.class) {
+            stats.put("memoryBytes", memoryCache != null ? memoryCache.size() : 0);
+        }
+        return stats;
+    }
+
+    private static synchronized LruCache<String, Bitmap> getMemoryCache() {
+        if (memoryCache == null) {
+            int maxBytes = (int) Math.min(MAX_MEMORY_BYTES, Runtime.getRuntime().maxMemory() / 32);
+            memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+                @Override
+                protected int sizeOf(String key, Bitmap bitmap) {
+                    return bitmap.getRowBytes() * bitmap.getHeight();
+                }
+            };
+        }
+        return memoryCache;
+    }
+
+    private static synchronized void initDiskDirectory(Context context) {
+        if (diskDirectory == null) {
+            diskDirectory = new File(context.getCacheDir(), DISK_DIRECTORY);
+        }
+    }
+
+    @Nullable
+    private static synchronized File getDiskFile(String url) {
+        if (diskDirectory == null || (!diskDirectory.exists() && !diskDirectory.mkdirs())) {
+            return null;
+        }
+        return new File(diskDirectory, hashKey(url));
+    }
+
+    // removes least recently used files above the disk limit
+    private static synchronized void trimDisk() {
+        File[] files = diskDirectory != null ? diskDirectory.listFiles() : null;
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= MAX_DISK_BYTES) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.valueOf(a.lastModified()).compareTo(b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (size <= MAX_DISK_BYTES) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private static String hashKey(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(url.getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            return String.valueOf(url.hashCode());
+        }
+    }
+}
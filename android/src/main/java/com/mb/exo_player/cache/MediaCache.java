@@ -0,0 +1,196 @@
+package com.mb.exo_player.cache;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.database.ExoDatabaseProvider;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheUtil;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.google.android.exoplayer2.util.Util;
+import com.mb.exo_player.download.OfflineDownloads;
+import com.mb.exo_player.network.HttpStack;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plugin-wide LRU disk cache shared by all players.
+ *
+ * The cache is created lazily on first use with the last configured directory and size,
+ * a SimpleCache directory can only be opened once per process so later configuration
+ * changes are ignored until {@link #release()} is called.
+ */
+public class MediaCache {
+    private static final String DEFAULT_CACHE_DIRECTORY = "mb_exo_player_media";
+    private static final long DEFAULT_MAX_BYTES = 100 * 1024 * 1024;
+
+    private static SimpleCache cache;
+    private static ExoDatabaseProvider databaseProvider;
+    private static DataSource.Factory upstreamDataSourceFactory;
+    private static DataSource.Factory cacheDataSourceFactory;
+
+    private static String cacheDirectory;
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+
+    //stats
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong hitBytes = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong missBytes = new AtomicLong();
+    private static final AtomicLong ignored = new AtomicLong();
+
+    private MediaCache() {}
+
+    public static synchronized void configure(Context context, @Nullable String directory, long maxBytes) {
+        String newDirectory = directory != null ? directory : new File(context.getCacheDir(), DEFAULT_CACHE_DIRECTORY).getAbsolutePath();
+        long newMaxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+        if (cache != null) {
+            if (!newDirectory.equals(cacheDirectory) || newMaxBytes != MediaCache.maxBytes) {
+                Log.e("MBExoPlayerPlugin", "Media cache is already open, new cache configuration is ignored");
+            }
+            return;
+        }
+        cacheDirectory = newDirectory;
+        MediaCache.maxBytes = newMaxBytes;
+    }
+
+    /**
+     * Returns the data source factory to read the given uri with, only http(s) uris go through the cache.
+     * Offline downloads are read first, also when the cache is bypassed.
+     */
+    public static DataSource.Factory getDataSourceFactory(Context context, Uri uri, boolean bypass) {
+        return OfflineDownloads.wrapDataSourceFactory(context, getStreamingDataSourceFactory(context, uri, bypass));
+    }
+
+    private static synchronized DataSource.Factory getStreamingDataSourceFactory(Context context, Uri uri, boolean bypass) {
+        if (bypass || !isCacheable(uri)) {
+            return getUpstreamDataSourceFactory(context);
+        }
+        if (cacheDataSourceFactory == null) {
+            cacheDataSourceFactory = new CacheDataSourceFactory(getCache(context), getUpstreamDataSourceFactory(context),
+                    CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR, new CacheDataSource.EventListener() {
+                @Override
+                public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+                    hits.incrementAndGet();
+                    hitBytes.addAndGet(cachedBytesRead);
+                }
+
+                @Override
+                public void onCacheIgnored(int reason) {
+                    ignored.incrementAndGet();
+                }
+            });
+        }
+        return cacheDataSourceFactory;
+    }
+
+    /**
+     * Caches the first bytes of the given uri and returns how many of them had to be fetched.
+     * Blocks until done, prefetched bytes are not counted as cache misses.
+     */
+    public static long prefetch(Context context, Uri uri, long bytes, AtomicBoolean canceled)
+            throws IOException, InterruptedException {
+        if (!isCacheable(uri)) {
+            return 0;
+        }
+        final AtomicLong fetchedBytes = new AtomicLong();
+        DataSource upstream = new OkHttpDataSourceFactory(HttpStack.getCallFactory(),
+                Util.getUserAgent(context, "exoPlayerLibrary")).createDataSource();
+        CacheUtil.cache(new DataSpec(uri, 0, bytes, null), getCache(context), null, upstream,
+                new CacheUtil.ProgressListener() {
+                    @Override
+                    public void onProgress(long requestLength, long bytesCached, long newBytesCached) {
+                        fetchedBytes.addAndGet(newBytesCached);
+                    }
+                }, canceled);
+        return fetchedBytes.get();
+    }
+
+    public static boolean isCacheable(Uri uri) {
+        String scheme = uri.getScheme();
+        return "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
+    }
+
+    public static synchronized SimpleCache getCache(Context context) {
+        if (cache == null) {
+            if (cacheDirectory == null) {
+                configure(context, null, DEFAULT_MAX_BYTES);
+            }
+            cache = new SimpleCache(new File(cacheDirectory), new LeastRecentlyUsedCacheEvictor(maxBytes), getDatabaseProvider(context));
+        }
+        return cache;
+    }
+
+    public static synchronized ExoDatabaseProvider getDatabaseProvider(Context context) {
+        if (databaseProvider == null) {
+            databaseProvider = new ExoDatabaseProvider(context.getApplicationContext());
+        }
+        return databaseProvider;
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("hitBytes", hitBytes.get());
+        stats.put("misses", misses.get());
+        stats.put("missBytes", missBytes.get());
+        stats.put("ignored", ignored.get());
+        synchronized (MediaCache.class) {
+            stats.put("maxBytes", maxBytes);
+            stats.put("cacheDirectory", cacheDirectory);
+            stats.put("cachedBytes", cache != null ? cache.getCacheSpace() : 0L);
+        }
+        return stats;
+    }
+
+    public static synchronized void release() {
+        if (cache != null) {
+            cache.release();
+            cache = null;
+            cacheDataSourceFactory = null;
+        }
+    }
+
+    private static DataSource.Factory getUpstreamDataSourceFactory(Context context) {
+        if (upstreamDataSourceFactory == null) {
+            // every network transfer that reaches the upstream is a cache miss, http goes through the shared client
+            upstreamDataSourceFactory = new DefaultDataSourceFactory(context.getApplicationContext(), new TransferListener() {
+                @Override
+                public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+
+                @Override
+                public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+                    if (isNetwork) {
+                        misses.incrementAndGet();
+                    }
+                }
+
+                @Override
+                public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+                    if (isNetwork) {
+                        missBytes.addAndGet(bytesTransferred);
+                    }
+                }
+
+                @Override
+                public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+            }, new OkHttpDataSourceFactory(HttpStack.getCallFactory(), Util.getUserAgent(context, "exoPlayerLibrary")));
+        }
+        return upstreamDataSourceFactory;
+    }
+}
@@ -0,0 +1,97 @@
+package com.mb.exo_player.cache;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.collection.LruCache;
+
+import com.mb.exo_player.interfaces.PcmBufferResponse;
+import com.mb.exo_player.models.PcmBuffer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory LRU of decoded sound effects, bounded by bytes.
+ *
+ * Clips are decoded once on a background thread, concurrent loads of the same url share one decode.
+ * All methods have to be called from the same looper thread, responses are delivered on it as well.
+ */
+public class PcmCache {
+    private static final int DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private static final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+    private static final Map<String, List<PcmBufferResponse>> pendingLoads = new HashMap<>();
+    private static final LruCache<String, PcmBuffer> buffers = new LruCache<String, PcmBuffer>(DEFAULT_MAX_BYTES) {
+        @Override
+        protected int sizeOf(String url, PcmBuffer pcmBuffer) {
+            return pcmBuffer.getData().length;
+        }
+    };
+
+    private PcmCache() {}
+
+    public static void setMaxBytes(int maxBytes) {
+        buffers.resize(maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES);
+    }
+
+    public static PcmBuffer get(String url) {
+        return buffers.get(url);
+    }
+
+    public static void load(final Context context, final String url, PcmBufferResponse response) {
+        PcmBuffer pcmBuffer = buffers.get(url);
+        if (pcmBuffer != null) {
+            response.processFinish(pcmBuffer);
+            return;
+        }
+        List<PcmBufferResponse> responses = pendingLoads.get(url);
+        if (responses != null) {
+            responses.add(response);
+            return;
+        }
+        responses = new ArrayList<>();
+        responses.add(response);
+        pendingLoads.put(url, responses);
+        final Handler responseHandler = new Handler(Looper.myLooper());
+        decodeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                PcmBuffer decoded = null;
+                try {
+                    decoded = PcmDecoder.decode(context, url);
+                } catch (Exception e) {
+                    Log.e("MBExoPlayerPlugin", "Failed decoding sound effect!", e);
+                }
+                final PcmBuffer result = decoded;
+                responseHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (result != null) {
+                            buffers.put(url, result);
+                        }
+                        for (PcmBufferResponse response : pendingLoads.remove(url)) {
+                            response.processFinish(result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", buffers.size());
+        stats.put("maxSize", buffers.maxSize());
+        stats.put("hits", buffers.hitCount());
+        stats.put("misses", buffers.missCount());
+        stats.put("evictions", buffers.evictionCount());
+        return stats;
+    }
+}
@@ -0,0 +1,97 @@
+package com.mb.exo_player.cache;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.mb.exo_player.download.OfflineDownloads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the first bytes of playlist items around the current one, so that skipping to them
+ * starts from the media cache instead of a cold network request.
+ *
+ * One instance per player, all instances share a single low priority loading thread. A new
+ * prefetch cancels what is left of the previous one of the same player.
+ */
+public class Prefetcher {
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "MBExoPlayerPrefetch");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    //stats
+    private static final AtomicLong prefetchedItems = new AtomicLong();
+    private static final AtomicLong prefetchedBytes = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+
+    private final Context context;
+    private AtomicBoolean canceled = new AtomicBoolean();
+
+    public Prefetcher(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public void prefetch(List<String> urls, final long bytes) {
+        cancel();
+        if (urls.isEmpty() || bytes <= 0) {
+            return;
+        }
+        final AtomicBoolean canceled = new AtomicBoolean();
+        final List<String> pendingUrls = new ArrayList<>(urls);
+        this.canceled = canceled;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (String url : pendingUrls) {
+                    if (canceled.get()) {
+                        return;
+                    }
+                    if (OfflineDownloads.isDownloaded(context, url)) {
+                        // played from the download cache, streaming cache bytes would be wasted
+                        continue;
+                    }
+                    try {
+                        long fetchedBytes = MediaCache.prefetch(context, Uri.parse(url), bytes, canceled);
+                        if (fetchedBytes > 0) {
+                            prefetchedItems.incrementAndGet();
+                            prefetchedBytes.addAndGet(fetchedBytes);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        // the player loads the item itself later on
+                        failures.incrementAndGet();
+                        Log.e("MBExoPlayerPlugin", "Prefetch failed: " + e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    public void cancel() {
+        canceled.set(true);
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("items", prefetchedItems.get());
+        stats.put("bytes", prefetchedBytes.get());
+        stats.put("failures", failures.get());
+        return stats;
+    }
+}
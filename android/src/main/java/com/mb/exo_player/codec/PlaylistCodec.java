@@ -0,0 +1,96 @@
+package com.mb.exo_player.codec;
+
+import com.mb.exo_player.enums.SourceType;
+import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.models.AudioVariant;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * Decoder for the packed playlist payload sent by the Dart side instead of parallel lists.
+ *
+ * Layout, big endian:
+ * <pre>
+ * int32 version
+ * int32 stringCount, then per string: int32 byteLength, utf-8 bytes
+ * int32 itemCount, then per item:
+ *   int32 url, int32 smallIconFileName, int32 title, int32 subTitle, int32 largeIconUrl (string table indexes, -1 for null)
+ *   int8 flags (bit 0 isLocal), int8 notificationActionMode, int8 notificationActionCallbackMode
+ *   since version 2: int32 mimeType (string table index), int8 sourceType
+ *   since version 3: int32 variantCount, then per variant: int32 url (string table index), int32 bitrate
+ * </pre>
+ * Repeated values such as icon file names are stored once in the string table.
+ */
+public class PlaylistCodec {
+    public static final int VERSION = 3;
+    private static final int FLAG_IS_LOCAL = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private PlaylistCodec() {}
+
+    public static ArrayList<AudioObject> decode(byte[] data, boolean isBackground) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            final int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException("Unsupported packed playlist version " + version);
+            }
+            final String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                final int length = buffer.getInt();
+                strings[i] = new String(data, buffer.position(), length, UTF_8);
+                buffer.position(buffer.position() + length);
+            }
+            final int itemCount = buffer.getInt();
+            final ArrayList<AudioObject> audioObjects = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                final String url = readString(buffer, strings);
+                final String smallIconFileName = readString(buffer, strings);
+                final String title = readString(buffer, strings);
+                final String subTitle = readString(buffer, strings);
+                final String largeIconUrl = readString(buffer, strings);
+                final byte flags = buffer.get();
+                // notification modes are not used by the foreground notification yet
+                buffer.get();
+                buffer.get();
+                final AudioObject audioObject;
+                if (isBackground) {
+                    audioObject = new AudioObject(url);
+                } else {
+                    audioObject = new AudioObject(url, smallIconFileName, title, subTitle, largeIconUrl,
+                            (flags & FLAG_IS_LOCAL) != 0);
+                }
+                if (version >= 2) {
+                    audioObject.setMimeType(readString(buffer, strings));
+                    final int sourceType = buffer.get();
+                    if (sourceType >= 0 && sourceType < SourceType.values().length) {
+                        audioObject.setSourceType(SourceType.values()[sourceType]);
+                    }
+                }
+                if (version >= 3) {
+                    final int variantCount = buffer.getInt();
+                    if (variantCount > 0) {
+                        final ArrayList<AudioVariant> variants = new ArrayList<>(variantCount);
+                        for (int j = 0; j < variantCount; j++) {
+                            final String variantUrl = readString(buffer, strings);
+                            variants.add(new AudioVariant(variantUrl, buffer.getInt()));
+                        }
+                        audioObject.setVariants(variants);
+                    }
+                }
+                audioObjects.add(audioObject);
+            }
+            return audioObjects;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated packed playlist", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, String[] strings) {
+        final int index = buffer.getInt();
+        return index >= 0 ? strings[index] : null;
+    }
+}
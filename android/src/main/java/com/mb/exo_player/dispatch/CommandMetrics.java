@@ -0,0 +1,90 @@
+package com.mb.exo_player.dispatch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per method timings of channel commands.
+ *
+ * Main thread time covers dispatching the call and delivering its result, playback thread time
+ * covers the work done on the playback thread. Updated from both threads.
+ */
+public class CommandMetrics {
+
+    private static class Entry {
+        long count;
+        long mainThreadNanos;
+        long maxMainThreadNanos;
+        long playbackThreadNanos;
+        long maxPlaybackThreadNanos;
+        long queueNanos;
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    //time from a foreground play call until its service is bound
+    private long serviceBinds;
+    private long serviceBindNanos;
+    private long lastServiceBindNanos;
+    private long maxServiceBindNanos;
+
+    public synchronized void addMainThreadTime(String method, long nanos) {
+        Entry entry = getEntry(method);
+        entry.mainThreadNanos += nanos;
+        entry.maxMainThreadNanos = Math.max(entry.maxMainThreadNanos, nanos);
+    }
+
+    public synchronized void addPlaybackThreadTime(String method, long queueNanos, long nanos) {
+        Entry entry = getEntry(method);
+        entry.count++;
+        entry.queueNanos += queueNanos;
+        entry.playbackThreadNanos += nanos;
+        entry.maxPlaybackThreadNanos = Math.max(entry.maxPlaybackThreadNanos, nanos);
+    }
+
+    public synchronized void addServiceBindTime(long nanos) {
+        serviceBinds++;
+        serviceBindNanos += nanos;
+        lastServiceBindNanos = nanos;
+        maxServiceBindNanos = Math.max(maxServiceBindNanos, nanos);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            Map<String, Object> methodStats = new HashMap<>();
+            methodStats.put("count", entry.count);
+            methodStats.put("mainThreadMicros", entry.mainThreadNanos / 1000);
+            methodStats.put("maxMainThreadMicros", entry.maxMainThreadNanos / 1000);
+            methodStats.put("playbackThreadMicros", entry.playbackThreadNanos / 1000);
+            methodStats.put("maxPlaybackThreadMicros", entry.maxPlaybackThreadNanos / 1000);
+            methodStats.put("queueMicros", entry.queueNanos / 1000);
+            stats.put(mapEntry.getKey(), methodStats);
+        }
+        Map<String, Object> serviceBindStats = new HashMap<>();
+        serviceBindStats.put("count", serviceBinds);
+        serviceBindStats.put("totalMicros", serviceBindNanos / 1000);
+        serviceBindStats.put("lastMicros", lastServiceBindNanos / 1000);
+        serviceBindStats.put("maxMicros", maxServiceBindNanos / 1000);
+        stats.put("serviceBind", serviceBindStats);
+        return stats;
+    }
+
+    public synchronized void reset() {
+        entries.clear();
+        serviceBinds = 0;
+        serviceBindNanos = 0;
+        lastServiceBindNanos = 0;
+        maxServiceBindNanos = 0;
+    }
+
+    private Entry getEntry(String method) {
+        Entry entry = entries.get(method);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(method, entry);
+        }
+        return entry;
+    }
+}
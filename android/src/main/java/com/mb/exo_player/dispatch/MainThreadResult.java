@@ -0,0 +1,54 @@
+package com.mb.exo_player.dispatch;
+
+import android.os.Handler;
+
+import io.flutter.plugin.common.MethodChannel;
+
+// Result that can be completed from the playback thread, replies are posted to the main thread
+public class MainThreadResult implements MethodChannel.Result {
+    private final MethodChannel.Result result;
+    private final Handler mainHandler;
+    private final CommandMetrics metrics;
+    private final String method;
+
+    public MainThreadResult(MethodChannel.Result result, Handler mainHandler, CommandMetrics metrics, String method) {
+        this.result = result;
+        this.mainHandler = mainHandler;
+        this.metrics = metrics;
+        this.method = method;
+    }
+
+    @Override
+    public void success(final Object value) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final long start = System.nanoTime();
+                result.success(value);
+                metrics.addMainThreadTime(method, System.nanoTime() - start);
+            }
+        });
+    }
+
+    @Override
+    public void error(final String errorCode, final String errorMessage, final Object errorDetails) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final long start = System.nanoTime();
+                result.error(errorCode, errorMessage, errorDetails);
+                metrics.addMainThreadTime(method, System.nanoTime() - start);
+            }
+        });
+    }
+
+    @Override
+    public void notImplemented() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                result.notImplemented();
+            }
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.mb.exo_player.dispatch;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+// channel command buffered until its player is ready
+public class PendingCommand {
+    private final MethodCall call;
+    private final MethodChannel.Result response;
+
+    public PendingCommand(MethodCall call, MethodChannel.Result response) {
+        this.call = call;
+        this.response = response;
+    }
+
+    public MethodCall getCall() {
+        return call;
+    }
+
+    public MethodChannel.Result getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,224 @@
+package com.mb.exo_player.download;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
+import com.google.android.exoplayer2.offline.Download;
+import com.google.android.exoplayer2.offline.DownloadCursor;
+import com.google.android.exoplayer2.offline.DownloadManager;
+import com.google.android.exoplayer2.offline.DownloadRequest;
+import com.google.android.exoplayer2.offline.StreamKey;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
+import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.ContentMetadata;
+import com.google.android.exoplayer2.upstream.cache.NoOpCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.google.android.exoplayer2.util.Util;
+import com.mb.exo_player.cache.MediaCache;
+import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.network.HttpStack;
+import com.mb.exo_player.sources.MediaSources;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline copies of audio urls, downloaded into their own cache which is never evicted.
+ *
+ * Downloads run with bounded parallelism, resume from the bytes already on disk and are kept in
+ * a persistent download index, unfinished downloads continue once the manager is used again in a
+ * later session. Players read downloaded items through {@link #wrapDataSourceFactory}. The manager
+ * is created on, and reports to, the plugin's playback thread.
+ */
+public class OfflineDownloads {
+    private static final String DOWNLOAD_DIRECTORY = "mb_exo_player_downloads";
+    private static final int DEFAULT_MAX_PARALLEL_DOWNLOADS = 2;
+    private static final long PROGRESS_INTERVAL_MS = 1000;
+
+    public interface Listener {
+        void onDownloadChanged(Map<String, Object> status);
+    }
+
+    private static SimpleCache downloadCache;
+    private static DownloadManager downloadManager;
+    private static Handler progressHandler;
+    private static Listener listener;
+
+    // reports progress of running downloads, DownloadManager itself only reports state changes
+    private static final Runnable progressUpdate = new Runnable() {
+        @Override
+        public void run() {
+            boolean downloading = false;
+            for (Download download : downloadManager.getCurrentDownloads()) {
+                if (download.state == Download.STATE_DOWNLOADING) {
+                    downloading = true;
+                    notifyListener(download, false);
+                }
+            }
+            if (downloading) {
+                progressHandler.postDelayed(this, PROGRESS_INTERVAL_MS);
+            }
+        }
+    };
+
+    private OfflineDownloads() {}
+
+    public static synchronized void setListener(Listener listener) {
+        OfflineDownloads.listener = listener;
+    }
+
+    // has to be called from the playback thread
+    public static void download(Context context, List<AudioObject> audioObjects, int maxParallelDownloads) {
+        DownloadManager manager = getDownloadManager(context);
+        if (maxParallelDownloads > 0) {
+            manager.setMaxParallelDownloads(maxParallelDownloads);
+        }
+        for (AudioObject audioObject : audioObjects) {
+            Uri uri = Uri.parse(audioObject.getUrl());
+            if (!MediaCache.isCacheable(uri)) {
+                // local files are already offline
+                continue;
+            }
+            if (!MediaSources.isProgressive(audioObject)) {
+                Log.e("MBExoPlayerPlugin", "Only progressive audio can be downloaded: " + audioObject.getUrl());
+                continue;
+            }
+            // the url is the id and, like in MediaCache, the cache key
+            manager.addDownload(new DownloadRequest(audioObject.getUrl(), DownloadRequest.TYPE_PROGRESSIVE, uri,
+                    Collections.<StreamKey>emptyList(), null, null));
+        }
+    }
+
+    public static void remove(Context context, String url) {
+        getDownloadManager(context).removeDownload(url);
+    }
+
+    public static void pause(Context context) {
+        getDownloadManager(context).pauseDownloads();
+    }
+
+    public static void resume(Context context) {
+        getDownloadManager(context).resumeDownloads();
+    }
+
+    // status of every download in the index keyed by url
+    public static Map<String, Object> getDownloads(Context context) {
+        Map<String, Object> downloads = new HashMap<>();
+        DownloadCursor cursor = null;
+        try {
+            cursor = getDownloadManager(context).getDownloadIndex().getDownloads();
+            while (cursor.moveToNext()) {
+                Download download = cursor.getDownload();
+                downloads.put(download.request.id, describe(download));
+            }
+        } catch (IOException e) {
+            Log.e("MBExoPlayerPlugin", "Failed reading download index!");
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        // the index is only updated on state changes, running downloads report their current bytes
+        for (Download download : getDownloadManager(context).getCurrentDownloads()) {
+            downloads.put(download.request.id, describe(download));
+        }
+        return downloads;
+    }
+
+    /** Lets reads of downloaded urls be served from disk, other urls go to upstreamFactory. */
+    public static synchronized DataSource.Factory wrapDataSourceFactory(Context context, DataSource.Factory upstreamFactory) {
+        if (downloadCache == null && !getDownloadDirectory(context).exists()) {
+            return upstreamFactory;
+        }
+        // read-only, no sink so streamed bytes never end up in the download cache
+        return new CacheDataSourceFactory(getDownloadCache(context), upstreamFactory, new FileDataSourceFactory(),
+                null, CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR, null);
+    }
+
+    /** Whether url is completely in the download cache, safe to call from any thread. */
+    public static synchronized boolean isDownloaded(Context context, String url) {
+        if (downloadCache == null && !getDownloadDirectory(context).exists()) {
+            return false;
+        }
+        SimpleCache cache = getDownloadCache(context);
+        long contentLength = ContentMetadata.getContentLength(cache.getContentMetadata(url));
+        return contentLength != C.LENGTH_UNSET && cache.isCached(url, 0, contentLength);
+    }
+
+    private static synchronized DownloadManager getDownloadManager(Context context) {
+        if (downloadManager == null) {
+            DataSource.Factory upstreamFactory = new DefaultDataSourceFactory(context.getApplicationContext(),
+                    new OkHttpDataSourceFactory(HttpStack.getCallFactory(), Util.getUserAgent(context, "exoPlayerLibrary")));
+            downloadManager = new DownloadManager(context.getApplicationContext(), MediaCache.getDatabaseProvider(context),
+                    getDownloadCache(context), upstreamFactory);
+            downloadManager.setMaxParallelDownloads(DEFAULT_MAX_PARALLEL_DOWNLOADS);
+            // a new manager starts paused, unfinished downloads of earlier sessions continue right away,
+            // pause() and resume() stay available to override this
+            downloadManager.resumeDownloads();
+            progressHandler = new Handler(Looper.myLooper());
+            downloadManager.addListener(new DownloadManager.Listener() {
+                @Override
+                public void onDownloadChanged(DownloadManager downloadManager, Download download) {
+                    notifyListener(download, false);
+                    if (download.state == Download.STATE_DOWNLOADING) {
+                        progressHandler.removeCallbacks(progressUpdate);
+                        progressHandler.postDelayed(progressUpdate, PROGRESS_INTERVAL_MS);
+                    }
+                }
+
+                @Override
+                public void onDownloadRemoved(DownloadManager downloadManager, Download download) {
+                    notifyListener(download, true);
+                }
+            });
+        }
+        return downloadManager;
+    }
+
+    private static synchronized SimpleCache getDownloadCache(Context context) {
+        if (downloadCache == null) {
+            downloadCache = new SimpleCache(getDownloadDirectory(context), new NoOpCacheEvictor(),
+                    MediaCache.getDatabaseProvider(context));
+        }
+        return downloadCache;
+    }
+
+    private static File getDownloadDirectory(Context context) {
+        return new File(context.getFilesDir(), DOWNLOAD_DIRECTORY);
+    }
+
+    private static void notifyListener(Download download, boolean removed) {
+        Listener currentListener;
+        synchronized (OfflineDownloads.class) {
+            currentListener = listener;
+        }
+        if (currentListener != null) {
+            Map<String, Object> status = describe(download);
+            status.put("removed", removed);
+            currentListener.onDownloadChanged(status);
+        }
+    }
+
+    private static Map<String, Object> describe(Download download) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("url", download.request.id);
+        status.put("state", download.state);
+        status.put("bytesDownloaded", download.getBytesDownloaded());
+        status.put("contentLength", download.contentLength);
+        status.put("percentDownloaded", (double) download.getPercentDownloaded());
+        status.put("failureReason", download.failureReason);
+        return status;
+    }
+}
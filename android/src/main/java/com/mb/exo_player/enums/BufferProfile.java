@@ -0,0 +1,9 @@
+package com.mb.exo_player.enums;
+
+public enum BufferProfile {
+    DEFAULT,
+    LOW_LATENCY,
+    LOW_MEMORY,
+    HIGH_RESILIENCE,
+    CUSTOM,
+}
@@ -0,0 +1,8 @@
+package com.mb.exo_player.enums;
+
+public enum SourceType {
+    AUTO,
+    PROGRESSIVE,
+    HLS,
+    DASH,
+}
@@ -0,0 +1,134 @@
+package com.mb.exo_player.events;
+
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Stream of player events on the "mb_exo_player/events" EventChannel.
+ *
+ * Every event is encoded as a list [code, playerId, value]. Position and duration events are
+ * conflated per player and flushed once per looper pass as a single list
+ * [code, null, [playerId, value, playerId, value, ...]], only the latest value of a player is kept.
+ * Events are only delivered while Dart listens, otherwise {@link #emit} returns false and the
+ * caller falls back to the method channel.
+ */
+public class PlayerEventStream implements EventChannel.StreamHandler {
+    public static final int STATE_CHANGED = 0;
+    public static final int DURATION_CHANGED = 1;
+    public static final int POSITION_CHANGED = 2;
+    public static final int INDEX_CHANGED = 3;
+    public static final int AUDIO_SESSION_ID_CHANGED = 4;
+    public static final int NOTIFICATION_ACTION = 5;
+    public static final int ERROR = 6;
+    public static final int UPDATES = 7;
+    public static final int DOWNLOAD_CHANGED = 8;
+
+    private static final Map<String, Integer> CODES = new HashMap<>();
+
+    static {
+        CODES.put("audio.onStateChanged", STATE_CHANGED);
+        CODES.put("audio.onDurationChanged", DURATION_CHANGED);
+        CODES.put("audio.onCurrentPositionChanged", POSITION_CHANGED);
+        CODES.put("audio.onCurrentPlayingAudioIndexChange", INDEX_CHANGED);
+        CODES.put("audio.onAudioSessionIdChange", AUDIO_SESSION_ID_CHANGED);
+        CODES.put("audio.onNotificationActionCallback", NOTIFICATION_ACTION);
+        CODES.put("audio.onError", ERROR);
+        CODES.put("audio.onUpdates", UPDATES);
+        CODES.put("audio.onDownloadChanged", DOWNLOAD_CHANGED);
+    }
+
+    private final Handler handler;
+    private EventChannel.EventSink sink;
+
+    //latest conflated values per player, flushed together
+    private final Map<String, Object> pendingDurations = new LinkedHashMap<>();
+    private final Map<String, Object> pendingPositions = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            flushPending(DURATION_CHANGED, pendingDurations);
+            flushPending(POSITION_CHANGED, pendingPositions);
+        }
+    };
+
+    public PlayerEventStream(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+        this.sink = events;
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        this.sink = null;
+        handler.removeCallbacks(flush);
+        flushScheduled = false;
+        pendingDurations.clear();
+        pendingPositions.clear();
+    }
+
+    public boolean isActive() {
+        return sink != null;
+    }
+
+    // returns false if the event could not be sent on the event channel
+    public boolean emit(String method, String playerId, Object value) {
+        final Integer code = CODES.get(method);
+        if (sink == null || code == null) {
+            return false;
+        }
+        switch (code) {
+            case DURATION_CHANGED:
+                pendingDurations.put(playerId, value);
+                scheduleFlush();
+                break;
+            case POSITION_CHANGED:
+                pendingPositions.put(playerId, value);
+                scheduleFlush();
+                break;
+            default:
+                // keeps ordering, a state change must not overtake earlier positions
+                if (flushScheduled) {
+                    handler.removeCallbacks(flush);
+                    flush.run();
+                }
+                sink.success(Arrays.asList(code, playerId, value));
+                break;
+        }
+        return true;
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.post(flush);
+        }
+    }
+
+    private void flushPending(int code, Map<String, Object> pending) {
+        if (pending.isEmpty() || sink == null) {
+            pending.clear();
+            return;
+        }
+        final List<Object> values = new ArrayList<>(pending.size() * 2);
+        for (Map.Entry<String, Object> entry : pending.entrySet()) {
+            values.add(entry.getKey());
+            values.add(entry.getValue());
+        }
+        pending.clear();
+        sink.success(Arrays.asList(code, null, values));
+    }
+}
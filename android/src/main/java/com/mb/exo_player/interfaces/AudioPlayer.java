@@ -5,9 +5,11 @@ import android.content.Context;
 
 import com.mb.exo_player.MBExoPlayerPlugin;
 import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.models.BufferConfig;
 import com.mb.exo_player.enums.PlayerMode;
 
 import java.util.ArrayList;
+import java.util.Map;
 
 public interface AudioPlayer {
 
@@ -21,6 +23,8 @@ public interface AudioPlayer {
 
     void playAll(ArrayList<AudioObject> audioObjects, int index); 
 
+    void preload(AudioObject audioObject);
+
     void next();
 
     void previous();
@@ -37,6 +41,15 @@ public interface AudioPlayer {
 
     void seekIndex(int index);
 
+    //playlist mutations
+    void addItems(ArrayList<AudioObject> audioObjects, int index);
+
+    void removeRange(int fromIndex, int toIndex);
+
+    void moveItem(int fromIndex, int toIndex);
+
+    void replaceItem(int index, AudioObject audioObject);
+
     //state check
     boolean isPlaying();
 
@@ -55,10 +68,26 @@ public interface AudioPlayer {
 
     long getCurrentPosition();
 
+    long getBufferedPosition();
+
     int getCurrentPlayingAudioIndex();
 
+    long getStartupLatency();
+
+    Map<String, Object> getMetrics();
+
+    void resetMetrics();
+
     //setters
-    void setPlayerAttributes(boolean repeatMode, boolean respectAudioFocus, PlayerMode playerMode);
+    void setPlayerAttributes(boolean repeatMode, boolean respectAudioFocus, PlayerMode playerMode, BufferConfig bufferConfig);
+
+    void setBufferConfig(BufferConfig bufferConfig);
+
+    void setCacheBypass(boolean cacheBypass);
+
+    void setLazyPlaylist(boolean lazyPlaylist, int lazyWindowSize);
+
+    void setPrefetch(int prefetchCount, long prefetchBytes);
 
     void setVolume(float volume);
 
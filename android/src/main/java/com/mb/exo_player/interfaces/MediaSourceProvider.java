@@ -0,0 +1,8 @@
+package com.mb.exo_player.interfaces;
+
+import com.google.android.exoplayer2.source.MediaSource;
+import com.mb.exo_player.models.AudioObject;
+
+public interface MediaSourceProvider {
+    MediaSource createMediaSource(AudioObject audioObject);
+}
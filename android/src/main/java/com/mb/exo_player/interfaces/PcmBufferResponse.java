@@ -0,0 +1,7 @@
+package com.mb.exo_player.interfaces;
+
+import com.mb.exo_player.models.PcmBuffer;
+
+public interface PcmBufferResponse {
+    void processFinish(PcmBuffer pcmBuffer);
+}
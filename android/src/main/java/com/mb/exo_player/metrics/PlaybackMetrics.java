@@ -0,0 +1,141 @@
+package com.mb.exo_player.metrics;
+
+import android.os.SystemClock;
+
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.source.MediaSourceEventListener;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Playback performance counters of a single player, fed by its AnalyticsListener callbacks.
+ *
+ * Callbacks and getters run on the player's application looper.
+ */
+public class PlaybackMetrics implements AnalyticsListener {
+    //startup
+    private long playRequestedAt = 0;
+    private long timeToFirstFrameMs = -1;
+
+    //rebuffering, a buffering state after playback has started
+    private boolean started = false;
+    private long rebufferStartedAt = 0;
+    private int rebufferCount = 0;
+    private long rebufferDurationMs = 0;
+
+    //rendering
+    private int audioUnderruns = 0;
+
+    //loading
+    private long bytesLoaded = 0;
+    private int loadCount = 0;
+    private long loadDurationMs = 0;
+    private long maxLoadDurationMs = 0;
+    private int loadErrors = 0;
+    private long bitrateEstimate = -1;
+
+    //load error recovery
+    private int retries = 0;
+    private int recoveries = 0;
+
+    // called by the player on play/playAll, the next ready state counts as first frame
+    public void onPlayRequested() {
+        playRequestedAt = SystemClock.elapsedRealtime();
+        started = false;
+        rebufferStartedAt = 0;
+    }
+
+    // called by the player when it retries a failed playback
+    public void onRetryScheduled() {
+        retries++;
+    }
+
+    // called by the player when playback got ready again after a failure
+    public void onRecovered() {
+        recoveries++;
+    }
+
+    @Override
+    public void onPlayerStateChanged(EventTime eventTime, boolean playWhenReady, int playbackState) {
+        if (playbackState == Player.STATE_READY && playWhenReady) {
+            if (playRequestedAt != 0) {
+                timeToFirstFrameMs = eventTime.realtimeMs - playRequestedAt;
+                playRequestedAt = 0;
+            }
+            started = true;
+        }
+        if (playbackState == Player.STATE_BUFFERING && started && rebufferStartedAt == 0) {
+            rebufferCount++;
+            rebufferStartedAt = eventTime.realtimeMs;
+        } else if (playbackState != Player.STATE_BUFFERING && rebufferStartedAt != 0) {
+            rebufferDurationMs += eventTime.realtimeMs - rebufferStartedAt;
+            rebufferStartedAt = 0;
+        }
+        if (playbackState == Player.STATE_IDLE || playbackState == Player.STATE_ENDED) {
+            started = false;
+        }
+    }
+
+    @Override
+    public void onAudioUnderrun(EventTime eventTime, int bufferSize, long bufferSizeMs, long elapsedSinceLastFeedMs) {
+        audioUnderruns++;
+    }
+
+    @Override
+    public void onLoadCompleted(EventTime eventTime, MediaSourceEventListener.LoadEventInfo loadEventInfo,
+                                MediaSourceEventListener.MediaLoadData mediaLoadData) {
+        bytesLoaded += loadEventInfo.bytesLoaded;
+        loadCount++;
+        loadDurationMs += loadEventInfo.loadDurationMs;
+        maxLoadDurationMs = Math.max(maxLoadDurationMs, loadEventInfo.loadDurationMs);
+    }
+
+    @Override
+    public void onLoadError(EventTime eventTime, MediaSourceEventListener.LoadEventInfo loadEventInfo,
+                            MediaSourceEventListener.MediaLoadData mediaLoadData, IOException error, boolean wasCanceled) {
+        bytesLoaded += loadEventInfo.bytesLoaded;
+        loadErrors++;
+    }
+
+    @Override
+    public void onBandwidthEstimate(EventTime eventTime, int totalLoadTimeMs, long totalBytesLoaded, long bitrateEstimate) {
+        this.bitrateEstimate = bitrateEstimate;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("timeToFirstFrameMs", timeToFirstFrameMs);
+        stats.put("rebufferCount", rebufferCount);
+        stats.put("rebufferDurationMs", rebufferDurationMs
+                + (rebufferStartedAt != 0 ? SystemClock.elapsedRealtime() - rebufferStartedAt : 0));
+        stats.put("audioUnderruns", audioUnderruns);
+        stats.put("bytesLoaded", bytesLoaded);
+        stats.put("loadCount", loadCount);
+        stats.put("loadDurationMs", loadDurationMs);
+        stats.put("maxLoadDurationMs", maxLoadDurationMs);
+        stats.put("loadErrors", loadErrors);
+        stats.put("bitrateEstimate", bitrateEstimate);
+        stats.put("retries", retries);
+        stats.put("recoveries", recoveries);
+        return stats;
+    }
+
+    public void reset() {
+        timeToFirstFrameMs = -1;
+        rebufferStartedAt = 0;
+        rebufferCount = 0;
+        rebufferDurationMs = 0;
+        audioUnderruns = 0;
+        bytesLoaded = 0;
+        loadCount = 0;
+        loadDurationMs = 0;
+        maxLoadDurationMs = 0;
+        loadErrors = 0;
+        bitrateEstimate = -1;
+        retries = 0;
+        recoveries = 0;
+    }
+}
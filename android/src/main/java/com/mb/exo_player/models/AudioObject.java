@@ -1,6 +1,11 @@
 package com.mb.exo_player.models;
 
-import android.graphics.Bitmap;
+import com.mb.exo_player.enums.SourceType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 //import com.mb.exo_player.enums.NotificationActionCallbackMode;
 //import com.mb.exo_player.enums.NotificationActionMode;
@@ -12,11 +17,16 @@ public class AudioObject {
     private String subTitle;
     private String largeIconUrl;
     private boolean isLocal;
+    private SourceType sourceType = SourceType.AUTO;
+    private String mimeType;
+    private List<AudioVariant> variants = Collections.emptyList();
+    //url of the variant picked when the item was last loaded
+    private volatile String playbackUrl;
+    //downloaded copy among url and variants, looked up once when the item is built
+    private String downloadedUrl;
 //    private NotificationActionMode notificationActionMode;
 //    private NotificationActionCallbackMode notificationActionCallbackMode;
 
-    private Bitmap largeIcon;
-    
     //for foreground player
     public AudioObject(String url, String smallIconFileName, String title, String subTitle, String largeIconUrl, boolean isLocal
 //            , NotificationActionMode notificationActionMode, NotificationActionCallbackMode notificationActionCallbackMode
@@ -52,10 +62,6 @@ public class AudioObject {
         return largeIconUrl;
     }
 
-    public Bitmap getLargeIcon(){
-        return largeIcon;
-    }
-
     public String getUrl(){
         return url;
     }
@@ -64,6 +70,59 @@ public class AudioObject {
         return isLocal;
     }
 
+    public SourceType getSourceType(){
+        return sourceType;
+    }
+
+    public String getMimeType(){
+        return mimeType;
+    }
+
+    public void setSourceType(SourceType sourceType){
+        this.sourceType = sourceType != null ? sourceType : SourceType.AUTO;
+    }
+
+    public void setMimeType(String mimeType){
+        this.mimeType = mimeType;
+    }
+
+    public List<AudioVariant> getVariants(){
+        return variants;
+    }
+
+    //kept sorted by ascending bitrate
+    public void setVariants(List<AudioVariant> variants){
+        if (variants == null || variants.isEmpty()) {
+            this.variants = Collections.emptyList();
+            return;
+        }
+        List<AudioVariant> sorted = new ArrayList<>(variants);
+        Collections.sort(sorted, new Comparator<AudioVariant>() {
+            @Override
+            public int compare(AudioVariant a, AudioVariant b) {
+                return a.getBitrate() < b.getBitrate() ? -1 : (a.getBitrate() == b.getBitrate() ? 0 : 1);
+            }
+        });
+        this.variants = Collections.unmodifiableList(sorted);
+    }
+
+    //url actually loaded, the item url itself when there are no variants
+    public String getPlaybackUrl(){
+        return playbackUrl != null ? playbackUrl : url;
+    }
+
+    public void setPlaybackUrl(String playbackUrl){
+        this.playbackUrl = playbackUrl;
+    }
+
+    public String getDownloadedUrl(){
+        return downloadedUrl;
+    }
+
+    public void setDownloadedUrl(String downloadedUrl){
+        this.downloadedUrl = downloadedUrl;
+    }
+
 //    public NotificationActionMode getNotificationActionMode(){
 //        return notificationActionMode;
 //    }
@@ -71,8 +130,4 @@ public class AudioObject {
 //    public NotificationActionCallbackMode getNotificationActionCallbackMode(){
 //        return notificationActionCallbackMode;
 //    }
-
-    public void setLargeIcon(Bitmap bitmap){
-        this.largeIcon = bitmap;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.mb.exo_player.models;
+
+// one encoding of an item, bitrate in bits per second
+public class AudioVariant {
+    private final String url;
+    private final int bitrate;
+
+    public AudioVariant(String url, int bitrate) {
+        this.url = url;
+        this.bitrate = bitrate;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getBitrate() {
+        return bitrate;
+    }
+}
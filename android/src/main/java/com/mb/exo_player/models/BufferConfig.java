@@ -0,0 +1,88 @@
+package com.mb.exo_player.models;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.LoadControl;
+import com.mb.exo_player.enums.BufferProfile;
+
+// buffer durations and size of a player's LoadControl
+public class BufferConfig {
+    public static final BufferConfig DEFAULT = forProfile(BufferProfile.DEFAULT);
+
+    private final BufferProfile profile;
+    private final int minBufferMs;
+    private final int maxBufferMs;
+    private final int bufferForPlaybackMs;
+    private final int bufferForPlaybackAfterRebufferMs;
+    private final int targetBufferBytes;
+
+    public BufferConfig(BufferProfile profile, int minBufferMs, int maxBufferMs, int bufferForPlaybackMs,
+                        int bufferForPlaybackAfterRebufferMs, int targetBufferBytes) {
+        this.profile = profile;
+        this.minBufferMs = minBufferMs;
+        this.maxBufferMs = Math.max(maxBufferMs, minBufferMs);
+        this.bufferForPlaybackMs = Math.min(bufferForPlaybackMs, minBufferMs);
+        this.bufferForPlaybackAfterRebufferMs = Math.min(bufferForPlaybackAfterRebufferMs, minBufferMs);
+        this.targetBufferBytes = targetBufferBytes;
+    }
+
+    public static BufferConfig forProfile(BufferProfile profile) {
+        switch (profile) {
+            case LOW_LATENCY:
+                // starts with half a second of audio, restarts after a rebuffer with a second
+                return new BufferConfig(profile, 5000, 15000, 500, 1000, C.LENGTH_UNSET);
+            case LOW_MEMORY:
+                // speech audio on low-RAM devices, at most 1MB of buffer
+                return new BufferConfig(profile, 5000, 10000, 1000, 2000, 1024 * 1024);
+            case HIGH_RESILIENCE:
+                // long buffer and a bigger restart threshold for flaky networks
+                return new BufferConfig(profile, 60000, 120000, 2500, 10000, C.LENGTH_UNSET);
+            default:
+                return new BufferConfig(BufferProfile.DEFAULT,
+                        DefaultLoadControl.DEFAULT_MIN_BUFFER_MS,
+                        DefaultLoadControl.DEFAULT_MAX_BUFFER_MS,
+                        DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS,
+                        DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS,
+                        DefaultLoadControl.DEFAULT_TARGET_BUFFER_BYTES);
+        }
+    }
+
+    public LoadControl createLoadControl() {
+        return new DefaultLoadControl.Builder()
+                .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs)
+                .setTargetBufferBytes(targetBufferBytes)
+                // a byte target only bounds memory if it wins over the duration thresholds
+                .setPrioritizeTimeOverSizeThresholds(targetBufferBytes == C.LENGTH_UNSET)
+                .createDefaultLoadControl();
+    }
+
+    public BufferProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BufferConfig)) {
+            return false;
+        }
+        BufferConfig other = (BufferConfig) o;
+        return minBufferMs == other.minBufferMs
+                && maxBufferMs == other.maxBufferMs
+                && bufferForPlaybackMs == other.bufferForPlaybackMs
+                && bufferForPlaybackAfterRebufferMs == other.bufferForPlaybackAfterRebufferMs
+                && targetBufferBytes == other.targetBufferBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = minBufferMs;
+        result = 31 * result + maxBufferMs;
+        result = 31 * result + bufferForPlaybackMs;
+        result = 31 * result + bufferForPlaybackAfterRebufferMs;
+        result = 31 * result + targetBufferBytes;
+        return result;
+    }
+}
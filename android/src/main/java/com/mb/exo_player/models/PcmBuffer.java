@@ -0,0 +1,34 @@
+package com.mb.exo_player.models;
+
+// decoded 16 bit pcm audio of a sound effect
+public class PcmBuffer {
+    private byte[] data;
+    private int sampleRate;
+    private int channelCount;
+
+    public PcmBuffer(byte[] data, int sampleRate, int channelCount) {
+        this.data = data;
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public int getFrameCount() {
+        return data.length / (2 * channelCount);
+    }
+
+    public long getDurationMs() {
+        return getFrameCount() * 1000L / sampleRate;
+    }
+}
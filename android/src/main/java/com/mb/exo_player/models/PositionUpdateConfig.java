@@ -0,0 +1,66 @@
+package com.mb.exo_player.models;
+
+// position update rate of a single player
+public class PositionUpdateConfig {
+    public static final int DEFAULT_INTERVAL_MS = 200;
+    //rate used by adaptive players while the app is backgrounded or nobody listens
+    public static final int IDLE_INTERVAL_MS = 1000;
+    public static final int MIN_INTERVAL_MS = 16;
+
+    private int intervalMs = DEFAULT_INTERVAL_MS;
+    private boolean adaptive = false;
+    private boolean listenerActive = true;
+    private long nextUpdateAt = 0;
+
+    public int getIntervalMs() {
+        return intervalMs;
+    }
+
+    public void setIntervalMs(int intervalMs) {
+        this.intervalMs = Math.max(intervalMs, MIN_INTERVAL_MS);
+        resetSchedule();
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        resetSchedule();
+    }
+
+    public boolean isListenerActive() {
+        return listenerActive;
+    }
+
+    public void setListenerActive(boolean listenerActive) {
+        this.listenerActive = listenerActive;
+        resetSchedule();
+    }
+
+    public int getEffectiveIntervalMs(boolean appInBackground) {
+        if (adaptive && (appInBackground || !listenerActive)) {
+            return Math.max(intervalMs, IDLE_INTERVAL_MS);
+        }
+        return intervalMs;
+    }
+
+    public long getNextUpdateAt() {
+        return nextUpdateAt;
+    }
+
+    // makes the next update due immediately, used when the effective interval changes
+    public void resetSchedule() {
+        this.nextUpdateAt = 0;
+    }
+
+    // returns true if an update is due at the given time and schedules the next one
+    public boolean consumeUpdate(long now, boolean appInBackground) {
+        if (now < nextUpdateAt) {
+            return false;
+        }
+        nextUpdateAt = now + getEffectiveIntervalMs(appInBackground);
+        return true;
+    }
+}
@@ -0,0 +1,155 @@
+package com.mb.exo_player.network;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Plugin-wide OkHttp client used by all players and artwork loads.
+ *
+ * Connections are pooled and kept alive across tracks, HTTPS hosts negotiate HTTP/2 when they
+ * support it. Timeouts and headers can be changed at any time, the connection pool and
+ * dispatcher are kept when the client is rebuilt.
+ */
+public class HttpStack {
+    private static final int DEFAULT_CONNECT_TIMEOUT_MS = 8000;
+    private static final int DEFAULT_READ_TIMEOUT_MS = 8000;
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static OkHttpClient client;
+    private static int connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+    private static int readTimeoutMs = DEFAULT_READ_TIMEOUT_MS;
+    private static Map<String, String> headers = new HashMap<>();
+
+    //stats
+    private static final AtomicLong calls = new AtomicLong();
+    private static final AtomicLong failedCalls = new AtomicLong();
+    private static final AtomicLong connectionsAcquired = new AtomicLong();
+    private static final AtomicLong connectionsOpened = new AtomicLong();
+    private static final AtomicLong http2Connections = new AtomicLong();
+
+    // resolves the current client per call so that data source factories survive a reconfiguration
+    private static final Call.Factory callFactory = new Call.Factory() {
+        @Override
+        public Call newCall(Request request) {
+            return getClient().newCall(request);
+        }
+    };
+
+    private static final Interceptor headersInterceptor = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Map<String, String> currentHeaders = getHeaders();
+            if (currentHeaders.isEmpty()) {
+                return chain.proceed(chain.request());
+            }
+            Request.Builder builder = chain.request().newBuilder();
+            for (Map.Entry<String, String> header : currentHeaders.entrySet()) {
+                builder.header(header.getKey(), header.getValue());
+            }
+            return chain.proceed(builder.build());
+        }
+    };
+
+    private static final EventListener eventListener = new EventListener() {
+        @Override
+        public void callStart(Call call) {
+            calls.incrementAndGet();
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            failedCalls.incrementAndGet();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, @Nullable Protocol protocol) {
+            connectionsOpened.incrementAndGet();
+            if (protocol == Protocol.HTTP_2) {
+                http2Connections.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            connectionsAcquired.incrementAndGet();
+        }
+    };
+
+    private HttpStack() {}
+
+    public static synchronized OkHttpClient getClient() {
+        if (client == null) {
+            client = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                    .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                    .addInterceptor(headersInterceptor)
+                    .eventListener(eventListener)
+                    .build();
+        }
+        return client;
+    }
+
+    public static Call.Factory getCallFactory() {
+        return callFactory;
+    }
+
+    // non-positive timeouts keep the current value, null headers keep the current headers
+    public static synchronized void configure(int connectTimeoutMs, int readTimeoutMs, @Nullable Map<String, String> headers) {
+        if (connectTimeoutMs > 0) {
+            HttpStack.connectTimeoutMs = connectTimeoutMs;
+        }
+        if (readTimeoutMs > 0) {
+            HttpStack.readTimeoutMs = readTimeoutMs;
+        }
+        if (headers != null) {
+            HttpStack.headers = new HashMap<>(headers);
+        }
+        if (client != null) {
+            // same pool and dispatcher, only the timeouts change
+            client = client.newBuilder()
+                    .connectTimeout(HttpStack.connectTimeoutMs, TimeUnit.MILLISECONDS)
+                    .readTimeout(HttpStack.readTimeoutMs, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+    }
+
+    public static Map<String, Object> getStats() {
+        long acquired = connectionsAcquired.get();
+        long opened = connectionsOpened.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("calls", calls.get());
+        stats.put("failedCalls", failedCalls.get());
+        stats.put("connectionsOpened", opened);
+        stats.put("connectionsReused", Math.max(0, acquired - opened));
+        stats.put("http2Connections", http2Connections.get());
+        synchronized (HttpStack.class) {
+            stats.put("idleConnections", client != null ? client.connectionPool().idleConnectionCount() : 0);
+            stats.put("connectTimeoutMs", connectTimeoutMs);
+            stats.put("readTimeoutMs", readTimeoutMs);
+        }
+        return stats;
+    }
+
+    private static synchronized Map<String, String> getHeaders() {
+        return headers;
+    }
+}
@@ -0,0 +1,136 @@
+package com.mb.exo_player.network;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.ParserException;
+import com.google.android.exoplayer2.upstream.FileDataSource;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plugin-wide retry rules for failed loads.
+ *
+ * Loads are first retried inside the media source with exponential backoff, the player keeps
+ * its state meanwhile. Only when those retries are used up the error reaches the player, which
+ * then retries in place up to maxPlayerRetries times. Malformed media, missing files and client
+ * errors other than 408/429 are not retried.
+ */
+public class RetryPolicy implements LoadErrorHandlingPolicy {
+    private static final long BLACKLIST_DURATION_MS = 60000;
+
+    private static RetryPolicy current = new RetryPolicy(3, 2, 1000, 8000, false);
+
+    private final int maxLoadRetries;
+    private final int maxPlayerRetries;
+    private final long initialDelayMs;
+    private final long maxDelayMs;
+    private final boolean retryClientErrors;
+
+    public RetryPolicy(int maxLoadRetries, int maxPlayerRetries, long initialDelayMs, long maxDelayMs, boolean retryClientErrors) {
+        this.maxLoadRetries = Math.max(0, maxLoadRetries);
+        this.maxPlayerRetries = Math.max(0, maxPlayerRetries);
+        this.initialDelayMs = Math.max(0, initialDelayMs);
+        this.maxDelayMs = Math.max(this.initialDelayMs, maxDelayMs);
+        this.retryClientErrors = retryClientErrors;
+    }
+
+    public static synchronized RetryPolicy get() {
+        return current;
+    }
+
+    // only media sources built afterwards use the new policy
+    public static synchronized void set(RetryPolicy retryPolicy) {
+        current = retryPolicy;
+    }
+
+    @Override
+    public long getBlacklistDurationMsFor(int dataType, long loadDurationMs, IOException exception, int errorCount) {
+        // a missing variant of an adaptive stream is skipped for a minute, like ExoPlayer's default policy
+        if (exception instanceof HttpDataSource.InvalidResponseCodeException) {
+            int responseCode = ((HttpDataSource.InvalidResponseCodeException) exception).responseCode;
+            if (responseCode == 404 || responseCode == 410) {
+                return BLACKLIST_DURATION_MS;
+            }
+        }
+        return C.TIME_UNSET;
+    }
+
+    @Override
+    public long getRetryDelayMsFor(int dataType, long loadDurationMs, IOException exception, int errorCount) {
+        if (!isRetryable(exception) || errorCount > maxLoadRetries) {
+            return C.TIME_UNSET;
+        }
+        return getBackoffDelayMs(errorCount);
+    }
+
+    @Override
+    public int getMinimumLoadableRetryCount(int dataType) {
+        return maxLoadRetries;
+    }
+
+    // attempt starts at 1
+    public long getBackoffDelayMs(int attempt) {
+        long delayMs = initialDelayMs;
+        for (int i = 1; i < attempt && delayMs < maxDelayMs; i++) {
+            delayMs *= 2;
+        }
+        return Math.min(delayMs, maxDelayMs);
+    }
+
+    // whether a player that already failed attempts times should retry again
+    public boolean shouldRetry(ExoPlaybackException error, int attempts) {
+        return attempts < maxPlayerRetries
+                && error.type == ExoPlaybackException.TYPE_SOURCE
+                && isRetryable(error.getSourceException());
+    }
+
+    public boolean isRetryable(IOException exception) {
+        if (exception instanceof ParserException || exception instanceof FileNotFoundException
+                || exception instanceof FileDataSource.FileDataSourceException
+                || exception.getCause() instanceof FileNotFoundException) {
+            // local files and missing resources do not come back by trying again
+            return false;
+        }
+        if (exception instanceof HttpDataSource.InvalidResponseCodeException) {
+            int responseCode = ((HttpDataSource.InvalidResponseCodeException) exception).responseCode;
+            return responseCode >= 500 || responseCode == 408 || responseCode == 429 || retryClientErrors;
+        }
+        return true;
+    }
+
+    // payload of the audio.onError event
+    public static Map<String, Object> describe(ExoPlaybackException error, int attempts, boolean willRetry, long retryDelayMs) {
+        Throwable cause;
+        String errorType;
+        switch (error.type) {
+            case ExoPlaybackException.TYPE_SOURCE:
+                errorType = "source";
+                cause = error.getSourceException();
+                break;
+            case ExoPlaybackException.TYPE_RENDERER:
+                errorType = "renderer";
+                cause = error.getRendererException();
+                break;
+            default:
+                errorType = "unexpected";
+                cause = error.getCause() != null ? error.getCause() : error;
+                break;
+        }
+        Map<String, Object> description = new HashMap<>();
+        description.put("errorType", errorType);
+        description.put("cause", cause.getClass().getSimpleName());
+        description.put("message", cause.getMessage());
+        if (cause instanceof HttpDataSource.InvalidResponseCodeException) {
+            description.put("responseCode", ((HttpDataSource.InvalidResponseCodeException) cause).responseCode);
+        }
+        description.put("retryCount", attempts);
+        description.put("willRetry", willRetry);
+        description.put("retryDelayMs", retryDelayMs);
+        return description;
+    }
+}
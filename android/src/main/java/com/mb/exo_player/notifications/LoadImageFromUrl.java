@@ -5,27 +5,32 @@ import android.graphics.BitmapFactory;
 import android.os.AsyncTask;
 import android.util.Log;
 
+import com.mb.exo_player.cache.ArtworkCache;
 import com.mb.exo_player.interfaces.AsyncResponse;
+import com.mb.exo_player.network.HttpStack;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.io.File;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 
+import okhttp3.Request;
+import okhttp3.Response;
+
+// decodes artwork downsampled to the target size, network images go through ArtworkCache's disk cache
 public class LoadImageFromUrl extends AsyncTask<String, Void, Map<String, Bitmap>> {
 
     private String imageUrl;
     private boolean isLocal;
+    private int targetWidth;
+    private int targetHeight;
     private AsyncResponse delegate = null;
 
-    public LoadImageFromUrl(String imageUrl, boolean isLocal, AsyncResponse asyncResponse) {
+    public LoadImageFromUrl(String imageUrl, boolean isLocal, int targetWidth, int targetHeight, AsyncResponse asyncResponse) {
         super();
         this.imageUrl = imageUrl;
         this.isLocal = isLocal;
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
         this.delegate = asyncResponse;
     }
 
@@ -34,7 +39,7 @@ public class LoadImageFromUrl extends AsyncTask<String, Void, Map<String, Bitmap
         Map<String, Bitmap> bitmapMap = new HashMap<String, Bitmap>();
         if (isLocal) {
             if (new File(this.imageUrl).exists()) {
-                Bitmap temp = BitmapFactory.decodeFile(this.imageUrl);
+                Bitmap temp = decodeLocalFile();
                 if (temp != null) {
                     bitmapMap.put(this.imageUrl, temp);
                     return bitmapMap;
@@ -43,7 +48,13 @@ public class LoadImageFromUrl extends AsyncTask<String, Void, Map<String, Bitmap
                 Log.e("MBExoPlayerPlugin", "Local image doesn`t exist!");
             }
         } else {
-            Bitmap temp = getImageBitmapFromNetworkUrl();
+            Bitmap temp = ArtworkCache.readFromDisk(this.imageUrl);
+            if (temp == null) {
+                temp = getImageBitmapFromNetworkUrl();
+                if (temp != null) {
+                    ArtworkCache.writeToDisk(this.imageUrl, temp);
+                }
+            }
             if (temp != null) {
                 bitmapMap.put(this.imageUrl, temp);
                 return bitmapMap;
@@ -52,17 +63,40 @@ public class LoadImageFromUrl extends AsyncTask<String, Void, Map<String, Bitmap
         return null;
     }
 
+    private Bitmap decodeLocalFile() {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(this.imageUrl, options);
+        options.inSampleSize = ArtworkCache.calculateInSampleSize(options, targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeFile(this.imageUrl, options);
+    }
+
     private Bitmap getImageBitmapFromNetworkUrl() {
+        Response response = null;
         try {
-            URL url = new URL(this.imageUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setDoInput(true);
-            connection.connect();
-            InputStream in = connection.getInputStream();
-            return BitmapFactory.decodeStream(in);
+            // shares pooled connections and headers with the players
+            Request request = new Request.Builder().url(this.imageUrl).build();
+            response = HttpStack.getClient().newCall(request).execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                Log.e("MBExoPlayerPlugin", "Failed loading image!");
+                return null;
+            }
+            // bytes are decoded twice, once for the bounds and once downsampled
+            byte[] data = response.body().bytes();
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            options.inSampleSize = ArtworkCache.calculateInSampleSize(options, targetWidth, targetHeight);
+            options.inJustDecodeBounds = false;
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
         } catch (Exception e) {
             Log.e("MBExoPlayerPlugin", "Failed loading image!");
             return null;
+        } finally {
+            if (response != null) {
+                response.close();
+            }
         }
     }
 
@@ -15,11 +15,13 @@ import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
 
+import com.mb.exo_player.cache.ArtworkCache;
 import com.mb.exo_player.enums.NotificationActionMode;
 import com.mb.exo_player.interfaces.AsyncResponse;
 import com.mb.exo_player.models.AudioObject;
 import com.mb.exo_player.R;
 import com.mb.exo_player.players.ForegroundAudioPlayer;
+import com.mb.exo_player.players.ForegroundPlaybackService;
 
 import java.util.Map;
 
@@ -28,7 +30,7 @@ public class MediaNotificationManager {
     public static final String PAUSE_ACTION = "com.mb.exoPlayer.action.pause";
     public static final String PREVIOUS_ACTION = "com.mb.exoPlayer.action.previous";
     public static final String NEXT_ACTION = "com.mb.exoPlayer.action.next";
-    private static final int NOTIFICATION_ID = 1;
+    public static final int NOTIFICATION_ID = 1;
     private static final String CHANNEL_ID = "AH Playback";
 
     private ForegroundAudioPlayer foregroundExoPlayer;
@@ -52,6 +54,7 @@ public class MediaNotificationManager {
     private PendingIntent pendingIntent;
 
     private AudioObject audioObject;
+    private Bitmap largeIcon;
     private boolean isPlaying;
 
     public MediaNotificationManager(ForegroundAudioPlayer foregroundExoPlayer, Context context, MediaSessionCompat mediaSession, Activity activity) {
@@ -68,27 +71,49 @@ public class MediaNotificationManager {
         pendingIntent = PendingIntent.getActivity(this.context, 0,
         notificationIntent, 0);
 
-        playIntent = new Intent(this.context, ForegroundAudioPlayer.class);
-        playIntent.setAction(PLAY_ACTION);
-        pplayIntent = PendingIntent.getService(this.context, 1, playIntent, 0);
+        playIntent = buildActionIntent(PLAY_ACTION);
+        pplayIntent = getActionPendingIntent(playIntent, 0);
 
-        pauseIntent = new Intent(this.context, ForegroundAudioPlayer.class);
-        pauseIntent.setAction(PAUSE_ACTION);
-        ppauseIntent = PendingIntent.getService(this.context, 1, pauseIntent, 0);
+        pauseIntent = buildActionIntent(PAUSE_ACTION);
+        ppauseIntent = getActionPendingIntent(pauseIntent, 1);
 
-        prevIntent = new Intent(this.context, ForegroundAudioPlayer.class);
-        prevIntent.setAction(PREVIOUS_ACTION);
-        pprevIntent = PendingIntent.getService(this.context, 1, prevIntent, 0);
+        prevIntent = buildActionIntent(PREVIOUS_ACTION);
+        pprevIntent = getActionPendingIntent(prevIntent, 2);
 
-        nextIntent = new Intent(this.context, ForegroundAudioPlayer.class);
-        nextIntent.setAction(NEXT_ACTION);
-        pnextIntent = PendingIntent.getService(this.context, 1, nextIntent, 0);
+        nextIntent = buildActionIntent(NEXT_ACTION);
+        pnextIntent = getActionPendingIntent(nextIntent, 3);
 
     }
 
+    // actions are handled by the service, which routes them to the session of playerId
+    private Intent buildActionIntent(String action) {
+        Intent intent = new Intent(this.context, ForegroundPlaybackService.class);
+        intent.setAction(action);
+        intent.putExtra(ForegroundPlaybackService.EXTRA_PLAYER_ID, foregroundExoPlayer.getPlayerId());
+        return intent;
+    }
+
+    // one request code per action and player, otherwise sessions would share their pending intents
+    private PendingIntent getActionPendingIntent(Intent intent, int actionIndex) {
+        int requestCode = 31 * foregroundExoPlayer.getPlayerId().hashCode() + actionIndex;
+        return PendingIntent.getService(this.context, requestCode, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    // shown by ForegroundPlaybackService while it runs in the foreground, a session notification replaces it
+    public static Notification buildServiceNotification(Context context) {
+        initNotificationManager(context);
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_play)
+                .setContentTitle(context.getPackageManager().getApplicationLabel(context.getApplicationInfo()))
+                .setShowWhen(false)
+                .setSound(null)
+                .build();
+    }
+
     //make new notification
     public void makeNotification(AudioObject audioObject, boolean isPlaying) {
         this.audioObject = audioObject;
+        this.largeIcon = null;
         this.isPlaying = isPlaying;
         if (audioObject.getLargeIconUrl() != null) {
             loadImageFromUrl(audioObject.getLargeIconUrl(), audioObject.getIsLocal());
@@ -114,7 +139,7 @@ public class MediaNotificationManager {
         int icon = this.context.getResources().getIdentifier(audioObject.getSmallIconFileName(), "drawable",
                 this.context.getPackageName());
 
-                notificationManager = initNotificationManager();
+        notificationManager = initNotificationManager(this.context);
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this.context, CHANNEL_ID)
                 .setSmallIcon(icon)
                 .setWhen(System.currentTimeMillis())
@@ -129,8 +154,8 @@ public class MediaNotificationManager {
         if (audioObject.getSubTitle() != null) {
             builder.setContentText(audioObject.getSubTitle());
         }
-        if (audioObject.getLargeIcon() != null) {
-            builder.setLargeIcon(audioObject.getLargeIcon());
+        if (largeIcon != null) {
+            builder.setLargeIcon(largeIcon);
         }
         if(!this.isPlaying){
             builder.setTimeoutAfter(900000);
@@ -151,7 +176,7 @@ public class MediaNotificationManager {
 //        }
     }
 
-    private NotificationManager initNotificationManager() {
+    private static NotificationManager initNotificationManager(Context context) {
         NotificationManager notificationManager;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel notificationChannel = new NotificationChannel(CHANNEL_ID, "Playback",
@@ -159,11 +184,11 @@ public class MediaNotificationManager {
             notificationChannel.setSound(null, null);
             notificationChannel.setShowBadge(false);
 
-            notificationManager = (NotificationManager) this.context
+            notificationManager = (NotificationManager) context
                     .getSystemService(Context.NOTIFICATION_SERVICE);
             notificationManager.createNotificationChannel(notificationChannel);
         } else {
-            notificationManager = (NotificationManager) this.context
+            notificationManager = (NotificationManager) context
                     .getSystemService(Context.NOTIFICATION_SERVICE);
         }
         return notificationManager;
@@ -206,12 +231,13 @@ public class MediaNotificationManager {
 
     private void loadImageFromUrl(String imageUrl, boolean isLocal) {
         try {
-            new LoadImageFromUrl(imageUrl, isLocal, new AsyncResponse() {
+            // the bitmap is only held by the current notification, ArtworkCache keeps the covers
+            ArtworkCache.load(this.context, imageUrl, isLocal, new AsyncResponse() {
                 @Override
                 public void processFinish(Map<String,Bitmap> bitmapMap) {
                     if (bitmapMap != null) {
                         if(bitmapMap.get(audioObject.getLargeIconUrl()) != null){
-                            audioObject.setLargeIcon(bitmapMap.get(audioObject.getLargeIconUrl()));
+                            largeIcon = bitmapMap.get(audioObject.getLargeIconUrl());
                             showNotification();
                         }else{
                             Log.e("MBExoPlayerPlugin", "canceled showing notification!");
@@ -221,7 +247,7 @@ public class MediaNotificationManager {
                         Log.e("MBExoPlayerPlugin", "Failed loading image!");
                     }
                 }
-            }).execute();
+            });
         } catch (Exception e) {
             Log.e("MBExoPlayerPlugin", "Failed loading image!");
         }
@@ -0,0 +1,48 @@
+package com.mb.exo_player.players;
+
+import android.content.Context;
+import android.os.Handler;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.RenderersFactory;
+import com.google.android.exoplayer2.audio.AudioCapabilities;
+import com.google.android.exoplayer2.audio.AudioProcessor;
+import com.google.android.exoplayer2.audio.AudioRendererEventListener;
+import com.google.android.exoplayer2.audio.DefaultAudioSink;
+import com.google.android.exoplayer2.audio.MediaCodecAudioRenderer;
+import com.google.android.exoplayer2.drm.DrmSessionManager;
+import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
+import com.google.android.exoplayer2.mediacodec.MediaCodecSelector;
+import com.google.android.exoplayer2.metadata.MetadataOutput;
+import com.google.android.exoplayer2.text.TextOutput;
+import com.google.android.exoplayer2.video.VideoRendererEventListener;
+
+/**
+ * Creates only the MediaCodec audio renderer, the plugin never plays video, text or metadata
+ * tracks so their renderers would be allocated per player for nothing.
+ *
+ * Same audio renderer and sink as DefaultRenderersFactory with extension renderers off.
+ */
+public class AudioOnlyRenderersFactory implements RenderersFactory {
+    private final Context context;
+
+    public AudioOnlyRenderersFactory(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public Renderer[] createRenderers(Handler eventHandler,
+                                      VideoRendererEventListener videoRendererEventListener,
+                                      AudioRendererEventListener audioRendererEventListener,
+                                      TextOutput textRendererOutput,
+                                      MetadataOutput metadataRendererOutput,
+                                      @Nullable DrmSessionManager<FrameworkMediaCrypto> drmSessionManager) {
+        return new Renderer[] {
+                new MediaCodecAudioRenderer(context, MediaCodecSelector.DEFAULT, drmSessionManager, false,
+                        eventHandler, audioRendererEventListener,
+                        new DefaultAudioSink(AudioCapabilities.getCapabilities(context), new AudioProcessor[0]))
+        };
+    }
+}
@@ -1,29 +1,11 @@
 package com.mb.exo_player.players;
 
 import android.app.Activity;
-import android.content.Intent;
 import android.content.Context;
-import android.net.Uri;
-import android.os.Binder;
-import android.os.IBinder;
 
-import androidx.annotation.Nullable;
-
-import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ExoPlayerFactory;
-import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
-import com.google.android.exoplayer2.Timeline;
-import com.google.android.exoplayer2.audio.AudioAttributes;
-import com.google.android.exoplayer2.analytics.AnalyticsListener;
-import com.google.android.exoplayer2.source.ConcatenatingMediaSource;
-import com.google.android.exoplayer2.source.MediaSource;
-import com.google.android.exoplayer2.source.ProgressiveMediaSource;
-import com.google.android.exoplayer2.source.TrackGroupArray;
-import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
-import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
-import com.google.android.exoplayer2.util.Util;
 
 //import com.mb.exo_player.notifications.MediaNotificationManager;
 import com.mb.exo_player.MBExoPlayerPlugin;
@@ -31,37 +13,30 @@ import com.mb.exo_player.enums.PlayerState;
 import com.mb.exo_player.enums.PlayerMode;
 import com.mb.exo_player.interfaces.AudioPlayer;
 import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.models.BufferConfig;
 
 import java.util.ArrayList;
+import java.util.Map;
 
 public class BackgroundAudioPlayer implements AudioPlayer {
 
     private Context context;
     private MBExoPlayerPlugin ref;
-    private BackgroundAudioPlayer backgroundAudioPlayer;
     private String playerId;
 
-    //player attributes
-    private float volume = 1;
-    private boolean repeatMode;
-    private boolean respectAudioFocus;
-    private PlayerMode playerMode;
-
     //player states
     private boolean initialized = false;
-    private boolean buffering = false;
-    private boolean playing = false;
-    private boolean stopped = false;
-    private boolean released = true;
-    private boolean completed = false;
-
-    //ExoPlayer
-    private SimpleExoPlayer player;
 
-    private ArrayList<AudioObject> audioObjects;
-    private AudioObject audioObject;
+    private final PlaybackController controller = new PlaybackController(this, new PlaybackController.PlayerFactory() {
+        @Override
+        public SimpleExoPlayer create(BufferConfig bufferConfig) {
+            // the shared bandwidth meter gives adaptive streams a warm estimate from all players
+            return ExoPlayerFactory.newSimpleInstance(context,
+                    PlayerComponents.getRenderersFactory(context), new DefaultTrackSelector(), bufferConfig.createLoadControl(),
+                    null, PlayerComponents.getBandwidthMeter(context));
+        }
+    });
 
-    
     @Override
     public void initAudioPlayer (MBExoPlayerPlugin ref, Activity activity, String playerId) {
         this.initialized = true;
@@ -69,150 +44,110 @@ public class BackgroundAudioPlayer implements AudioPlayer {
         this.ref = ref;
         this.context = activity.getApplicationContext();
         this.playerId = playerId;
-        this.backgroundAudioPlayer = this;
-    }
-
-    @Override
-        public void initExoPlayer(int index) {
-            player = ExoPlayerFactory.newSimpleInstance(this.context, new DefaultTrackSelector());
-            DefaultDataSourceFactory dataSourceFactory = new DefaultDataSourceFactory(this.context, Util.getUserAgent(this.context, "exoPlayerLibrary"));
-            // playlist/single audio load
-        if(playerMode == PlayerMode.PLAYLIST){
-            ConcatenatingMediaSource concatenatingMediaSource = new ConcatenatingMediaSource();
-            for (AudioObject audioObject : audioObjects) {
-                MediaSource mediaSource = new ProgressiveMediaSource.Factory(dataSourceFactory).createMediaSource(Uri.parse(audioObject.getUrl()));
-                concatenatingMediaSource.addMediaSource(mediaSource);
-            }
-            player.prepare(concatenatingMediaSource);
-            if(index != 0) {
-                player.seekTo(index,0);
-            }
-        }else{
-            MediaSource mediaSource = new ProgressiveMediaSource.Factory(dataSourceFactory).createMediaSource(Uri.parse(audioObject.getUrl()));
-            player.prepare(mediaSource);
-        }
-        //handle audio focus
-        if(this.respectAudioFocus){
-            AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                    .setUsage(C.USAGE_MEDIA)
-                    .setContentType(C.CONTENT_TYPE_MUSIC)
-                    .build();
-            player.setAudioAttributes(audioAttributes, true);
-        }
-        //set repeat mode
-        if (repeatMode) {
-            player.setRepeatMode(player.REPEAT_MODE_ALL);
-        }
+        controller.attach(ref, this.context);
+    }
+
+    // creates the ExoPlayer instance ahead of the first play call, used by BackgroundPlayerPool
+    public void warmUp() {
+        controller.warmUp();
+    }
+
+    @Override
+    public void initExoPlayer(int index) {
+        controller.initExoPlayer(index);
     }
 
     @Override
     public void play(AudioObject audioObject) {
-        if(this.completed || this.stopped){
-            this.resume();
-        }else{
-            this.released = false;
-
-            this.audioObject = audioObject;
-            this.initExoPlayer(0);
-            initEventListeners();
-            player.setPlayWhenReady(true);
-        }
+        controller.play(audioObject);
     }
 
     @Override
     public void playAll(ArrayList<AudioObject> audioObjects, int index) {
-        if(this.completed || this.stopped){
-            this.resume();
-        }else{
-            this.released = false;
-            
-            this.audioObjects = audioObjects;
-            this.initExoPlayer(index);
-            initEventListeners();
-            player.setPlayWhenReady(true);
-        }
+        controller.playAll(audioObjects, index);
     }
 
     @Override
     public void next() {
-        if (!this.released) {
-            player.next();
-            resume();
-        }
+        controller.next();
     }
 
     @Override
     public void previous() {
-        if (!this.released) {
-            player.previous();
-            resume();
-        }
+        controller.previous();
     }
 
     @Override
     public void pause() {
-        if (!this.released && this.playing) {
-            player.setPlayWhenReady(false);
-        }
+        controller.pause();
     }
 
     @Override
     public void resume() {
-        if (!this.released && !this.playing) {
-            if(!this.stopped){
-                this.completed = false;
-                player.setPlayWhenReady(true);
-            }else{
-                this.stopped = false;
-                this.initExoPlayer(0);
-                initEventListeners();
-                player.setPlayWhenReady(true);
-            }
-        }
+        controller.resume();
     }
 
     @Override
     public void stop() {
-        if (!this.released) {
-            player.stop(true);
-        }
+        controller.stop();
     }
 
     @Override
     public void release() {
-        if (!this.released) {
+        // warmed up or recycled instances are not bound to a playerId and only free their ExoPlayer
+        if (controller.release()) {
             this.initialized = false;
-            this.buffering = false;
-            this.playing = false;
-            this.stopped = false;
-            this.released = true;
-            this.completed = false;
-
-            this.audioObject = null;
-            this.audioObjects = null;
-            player.release();
-            player = null;
             ref.handleStateChange(this, PlayerState.RELEASED);
         }
     }
 
+    // releases the player from its playerId but keeps the ExoPlayer instance for reuse
+    public void recycle() {
+        if (controller.recycle()) {
+            this.initialized = false;
+            ref.handleStateChange(this, PlayerState.RELEASED);
+            this.playerId = null;
+        }
+    }
+
     @Override
     public void seekPosition(int position) {
-        if (!this.released) {
-            player.seekTo(player.getCurrentWindowIndex(), position);
-        }
+        controller.seekPosition(position);
     }
 
     @Override
     public void seekIndex(int index) {
-        if (!this.released && playerMode == PlayerMode.PLAYLIST) {
-            player.seekTo(index, 0);
-        }
+        controller.seekIndex(index);
+    }
+
+    @Override
+    public void preload(AudioObject audioObject) {
+        controller.preload(audioObject);
+    }
+
+    @Override
+    public void addItems(ArrayList<AudioObject> audioObjects, int index) {
+        controller.addItems(audioObjects, index);
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        controller.removeRange(fromIndex, toIndex);
+    }
+
+    @Override
+    public void moveItem(int fromIndex, int toIndex) {
+        controller.moveItem(fromIndex, toIndex);
+    }
+
+    @Override
+    public void replaceItem(int index, AudioObject audioObject) {
+        controller.replaceItem(index, audioObject);
     }
 
     @Override
     public boolean isPlaying() {
-        return this.playing;
+        return controller.isPlaying();
     }
 
     @Override
@@ -227,12 +162,12 @@ public class BackgroundAudioPlayer implements AudioPlayer {
 
     @Override
     public boolean isPlayerReleased(){
-        return this.released;
+        return controller.isReleased();
     }
 
     @Override
     public boolean isPlayerCompleted() {
-        return this.completed;
+        return controller.isCompleted();
     }
 
     @Override
@@ -242,119 +177,71 @@ public class BackgroundAudioPlayer implements AudioPlayer {
 
     @Override
     public long getDuration() {
-        if (!this.released) {
-            return player.getDuration();
-        } else {
-            return -1;
-        }
+        return controller.getDuration();
     }
 
     @Override
     public long getCurrentPosition() {
-        if (!this.released) {
-            return player.getCurrentPosition();
-        } else {
-            return -1;
-        }
+        return controller.getCurrentPosition();
+    }
+
+    @Override
+    public long getBufferedPosition() {
+        return controller.getBufferedPosition();
     }
 
     @Override
     public int getCurrentPlayingAudioIndex(){
-        return player.getCurrentWindowIndex();
+        return controller.getCurrentIndex();
+    }
+
+    @Override
+    public long getStartupLatency() {
+        return controller.getStartupLatency();
     }
 
     @Override
-    public void setPlayerAttributes(boolean repeatMode, boolean respectAudioFocus, PlayerMode playerMode) {
-        this.repeatMode = repeatMode;
-        this.respectAudioFocus = respectAudioFocus;
-        this.playerMode = playerMode;
+    public Map<String, Object> getMetrics() {
+        return controller.getMetrics();
+    }
+
+    @Override
+    public void resetMetrics() {
+        controller.resetMetrics();
+    }
+
+    @Override
+    public void setPlayerAttributes(boolean repeatMode, boolean respectAudioFocus, PlayerMode playerMode, BufferConfig bufferConfig) {
+        controller.setPlayerAttributes(repeatMode, respectAudioFocus, playerMode, bufferConfig);
+    }
+
+    @Override
+    public void setBufferConfig(BufferConfig bufferConfig) {
+        controller.setBufferConfig(bufferConfig);
+    }
+
+    @Override
+    public void setCacheBypass(boolean cacheBypass) {
+        controller.setCacheBypass(cacheBypass);
+    }
+
+    @Override
+    public void setLazyPlaylist(boolean lazyPlaylist, int lazyWindowSize) {
+        controller.setLazyPlaylist(lazyPlaylist, lazyWindowSize);
+    }
+
+    @Override
+    public void setPrefetch(int prefetchCount, long prefetchBytes) {
+        controller.setPrefetch(prefetchCount, prefetchBytes);
     }
 
     @Override
     public void setVolume(float volume) {
-        if (!this.released && this.volume != volume) {
-            this.volume = volume;
-            player.setVolume(volume);
-        }
+        controller.setVolume(volume);
     }
 
     @Override
     public void setRepeatMode(boolean repeatMode){
-        if(!this.released && this.repeatMode != repeatMode){
-            this.repeatMode = repeatMode;
-            if(this.repeatMode){
-                player.setRepeatMode(player.REPEAT_MODE_ALL);
-            }else{
-                player.setRepeatMode(player.REPEAT_MODE_OFF);
-            }
-        }
+        controller.setRepeatMode(repeatMode);
     }
-
-    private void initEventListeners() {
-        player.addAnalyticsListener(new AnalyticsListener(){
-            @Override
-            public void onAudioSessionId(EventTime eventTime, int audioSessionId) {
-                ref.handleAudioSessionIdChange(backgroundAudioPlayer, audioSessionId);
-            }
-        });
-        player.addListener(new Player.EventListener() {
-
-            @Override
-            public void onTracksChanged(TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
-                ref.handlePlayerIndex(backgroundAudioPlayer);
-            }
-
-            @Override
-            public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
-                switch (playbackState) {
-                    case Player.STATE_BUFFERING: {
-                        // buffering
-                        buffering = true;
-                        ref.handleStateChange(backgroundAudioPlayer, PlayerState.BUFFERING);
-                        break;
-                    }
-                    case Player.STATE_READY: {
-                        if(completed) {
-                            buffering = false;
-                            ref.handleStateChange(backgroundAudioPlayer, PlayerState.COMPLETED);
-                        } else if (buffering) {
-                            // playing
-                            buffering = false;
-                            playing = true;
-                            ref.handlePositionUpdates();
-                            ref.handleStateChange(backgroundAudioPlayer, PlayerState.PLAYING);
-                        } else if (playWhenReady) {
-                            // resumed
-                            playing = true;
-                            ref.handlePositionUpdates();
-                            ref.handleStateChange(backgroundAudioPlayer, PlayerState.PLAYING);
-                        } else if (!playWhenReady){
-                            // paused
-                            playing = false;
-                            ref.handleStateChange(backgroundAudioPlayer, PlayerState.PAUSED);
-                        }
-                        break;
-                    }
-                    case Player.STATE_ENDED: {
-                        // completed
-                        playing = false;
-                        completed = true;
-                        player.setPlayWhenReady(false);
-                        player.seekTo(0, 0);
-                        break;
-                    }
-                    case Player.STATE_IDLE: {
-                        // stopped
-                        playing = false;
-                        stopped = true;
-                        completed = false;
-                        buffering = false;
-                        ref.handleStateChange(backgroundAudioPlayer, PlayerState.STOPPED);
-                        break;
-                    } 
-                    // handle of released is in release method!
-                }
-            }
-        });
-    }
-}
\ No newline at end of file
+}
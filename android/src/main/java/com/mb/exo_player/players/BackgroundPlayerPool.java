@@ -0,0 +1,80 @@
+package com.mb.exo_player.players;
+
+import android.app.Activity;
+
+import com.mb.exo_player.MBExoPlayerPlugin;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of warmed up BackgroundAudioPlayers, new playerIds get an instance whose ExoPlayer
+ * is already built and released players go back to the pool instead of being torn down.
+ */
+public class BackgroundPlayerPool {
+    private final ArrayDeque<BackgroundAudioPlayer> idlePlayers = new ArrayDeque<>();
+    private int maxSize = 0;
+
+    //stats
+    private long hits = 0;
+    private long misses = 0;
+    private long recycled = 0;
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = Math.max(maxSize, 0);
+        while (idlePlayers.size() > this.maxSize) {
+            idlePlayers.poll().release();
+        }
+    }
+
+    // fills the pool up to its max size
+    public void warmUp(MBExoPlayerPlugin ref, Activity activity) {
+        while (idlePlayers.size() < maxSize) {
+            BackgroundAudioPlayer player = new BackgroundAudioPlayer();
+            player.initAudioPlayer(ref, activity, null);
+            player.warmUp();
+            idlePlayers.add(player);
+        }
+    }
+
+    public BackgroundAudioPlayer acquire(MBExoPlayerPlugin ref, Activity activity, String playerId) {
+        BackgroundAudioPlayer player = idlePlayers.poll();
+        if (player != null) {
+            hits++;
+        } else {
+            misses++;
+            player = new BackgroundAudioPlayer();
+        }
+        player.initAudioPlayer(ref, activity, playerId);
+        return player;
+    }
+
+    // returns false if the pool is full and the player has to be released by the caller
+    public boolean recycle(BackgroundAudioPlayer player) {
+        if (idlePlayers.size() >= maxSize || player.isPlayerReleased()) {
+            return false;
+        }
+        player.recycle();
+        idlePlayers.add(player);
+        recycled++;
+        return true;
+    }
+
+    public void clear() {
+        while (!idlePlayers.isEmpty()) {
+            idlePlayers.poll().release();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("maxSize", maxSize);
+        stats.put("idle", idlePlayers.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("recycled", recycled);
+        stats.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        return stats;
+    }
+}
@@ -1,33 +1,16 @@
 package com.mb.exo_player.players;
 
 import android.app.Activity;
-import android.app.Service;
 import android.content.Intent;
 import android.content.Context;
-import android.net.Uri;
-import android.os.Binder;
-import android.os.IBinder;
 
 import android.support.v4.media.session.MediaSessionCompat;
 
-import androidx.annotation.Nullable;
 import androidx.media.session.MediaButtonReceiver;
 
-import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ExoPlayerFactory;
-import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
-import com.google.android.exoplayer2.Timeline;
-import com.google.android.exoplayer2.audio.AudioAttributes;
-import com.google.android.exoplayer2.analytics.AnalyticsListener;
-import com.google.android.exoplayer2.source.ConcatenatingMediaSource;
-import com.google.android.exoplayer2.source.MediaSource;
-import com.google.android.exoplayer2.source.ProgressiveMediaSource;
-import com.google.android.exoplayer2.source.TrackGroupArray;
-import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
-import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
-import com.google.android.exoplayer2.util.Util;
 import com.mb.exo_player.MBExoPlayerPlugin;
 import com.mb.exo_player.enums.NotificationActionCallbackMode;
 import com.mb.exo_player.enums.NotificationActionName;
@@ -35,270 +18,192 @@ import com.mb.exo_player.enums.PlayerMode;
 import com.mb.exo_player.enums.PlayerState;
 import com.mb.exo_player.interfaces.AudioPlayer;
 import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.models.BufferConfig;
 //import com.mb.exo_player.notifications.MediaNotificationManager;
 
 import java.util.ArrayList;
+import java.util.Map;
 
-public class ForegroundAudioPlayer extends Service implements AudioPlayer {
-    private final IBinder binder = new LocalBinder();
+/**
+ * Single foreground playback session, hosted together with the other sessions by
+ * {@link ForegroundPlaybackService}.
+ */
+public class ForegroundAudioPlayer implements AudioPlayer {
+    private final ForegroundPlaybackService service;
 
-    public class LocalBinder extends Binder {
-        public ForegroundAudioPlayer getService() {
-            return ForegroundAudioPlayer.this;
-        }
-    }
-
-    private ForegroundAudioPlayer foregroundAudioPlayer;
 //    private MediaNotificationManager mediaNotificationManager;
     private Context context;
     private MBExoPlayerPlugin ref;
     private MediaSessionCompat mediaSession;
     private String playerId;
 
-    //player attributes
-    private float volume = 1;
-    private boolean repeatMode;
-    private boolean respectAudioFocus;
-    private PlayerMode playerMode;
-
     //player states
     private boolean initialized = false;
-    private boolean buffering = false;
-    private boolean playing = false;
-    private boolean stopped = false;
-    private boolean released = true;
-    private boolean completed = false;
-
-    //ExoPlayer
-    private SimpleExoPlayer player;
 
-    private ArrayList<AudioObject> audioObjects;
-    private AudioObject audioObject;
+    private final PlaybackController controller;
 
-    @Nullable
-    @Override
-    public IBinder onBind(Intent intent) {
-        return binder;
+    ForegroundAudioPlayer(ForegroundPlaybackService service) {
+        this.service = service;
+        this.context = service.getApplicationContext();
+        this.controller = new PlaybackController(this, new PlaybackController.PlayerFactory() {
+            @Override
+            public SimpleExoPlayer create(BufferConfig bufferConfig) {
+                // renderers factory and bandwidth meter are shared by all sessions of the service
+                SimpleExoPlayer exoPlayer = ExoPlayerFactory.newSimpleInstance(context, service.getRenderersFactory(),
+                        new DefaultTrackSelector(), bufferConfig.createLoadControl(), null, service.getBandwidthMeter());
+                exoPlayer.setForegroundMode(true);
+                return exoPlayer;
+            }
+        });
     }
 
-    @Override
-    public int onStartCommand(Intent intent, int flags, int startId) {
-        this.context = getApplicationContext();
-        mediaSession = new MediaSessionCompat(this.context, "playback");
+    // handles intents sent to the service for this session
+    void handleIntent(Intent intent) {
         // ! TODO handle MediaButtonReceiver's callbacks
         // MediaButtonReceiver.handleIntent(mediaSession, intent);
         // mediaSession.setCallback(mediaSessionCallback);
         if (intent.getAction() != null) {
-            AudioObject currentAudioObject;
-            if (this.playerMode == PlayerMode.PLAYLIST) {
-                currentAudioObject = this.audioObjects.get(player.getCurrentWindowIndex());
-            } else {
-                currentAudioObject = this.audioObject;
-            }
+            AudioObject currentAudioObject = controller.getCurrentAudioObject();
 //            if (intent.getAction().equals(MediaNotificationManager.PREVIOUS_ACTION)) {
 //                if (currentAudioObject.getNotificationActionCallbackMode() == NotificationActionCallbackMode.DEFAULT) {
 //                    previous();
 //                } else {
-//                    ref.handleNotificationActionCallback(this.foregroundAudioPlayer, NotificationActionName.PREVIOUS);
+//                    ref.handleNotificationActionCallback(this, NotificationActionName.PREVIOUS);
 //                }
 //            } else if (intent.getAction().equals(MediaNotificationManager.PLAY_ACTION)) {
 //                if (currentAudioObject.getNotificationActionCallbackMode() == NotificationActionCallbackMode.DEFAULT) {
-//                    if(!stopped){
+//                    if(!controller.isStopped()){
 //                        resume();
 //                    }else{
-//                        if(playerMode == PlayerMode.PLAYLIST){
-//                            playAll(audioObjects, 0);
+//                        if(controller.getPlayerMode() == PlayerMode.PLAYLIST){
+//                            playAll(controller.getAudioObjects(), 0);
 //                        }else{
-//                            play(audioObject);
+//                            play(currentAudioObject);
 //                        }
 //                    }
 //                } else {
-//                    ref.handleNotificationActionCallback(this.foregroundAudioPlayer, NotificationActionName.PLAY);
+//                    ref.handleNotificationActionCallback(this, NotificationActionName.PLAY);
 //                }
 //            } else if (intent.getAction().equals(MediaNotificationManager.PAUSE_ACTION)) {
 //                if (currentAudioObject.getNotificationActionCallbackMode() == NotificationActionCallbackMode.DEFAULT) {
 //                    pause();
 //                } else {
-//                    ref.handleNotificationActionCallback(this.foregroundAudioPlayer, NotificationActionName.PAUSE);
+//                    ref.handleNotificationActionCallback(this, NotificationActionName.PAUSE);
 //                }
 //            } else if (intent.getAction().equals(MediaNotificationManager.NEXT_ACTION)) {
 //                if (currentAudioObject.getNotificationActionCallbackMode() == NotificationActionCallbackMode.DEFAULT) {
 //                    next();
 //                } else {
-//                    ref.handleNotificationActionCallback(this.foregroundAudioPlayer, NotificationActionName.NEXT);
+//                    ref.handleNotificationActionCallback(this, NotificationActionName.NEXT);
 //                }
 //            }
         }
-        return START_STICKY;
     }
 
-    @Override
-    public void onTaskRemoved(Intent rootIntent) {
-        super.onTaskRemoved(rootIntent);
-        this.release();
-    }
-
-
     @Override
     public void initAudioPlayer(MBExoPlayerPlugin ref, Activity activity, String playerId) {
         this.initialized = true;
 
         this.playerId = playerId;
         this.ref = ref;
+        if (mediaSession == null) {
+            mediaSession = new MediaSessionCompat(this.context, "playback");
+        }
 //        this.mediaNotificationManager = new MediaNotificationManager(this, this.context, this.mediaSession, activity);
-        this.foregroundAudioPlayer = this;
+        controller.attach(ref, this.context);
     }
 
     @Override
     public void initExoPlayer(int index) {
-        player = ExoPlayerFactory.newSimpleInstance(this.context, new DefaultTrackSelector());
-        DefaultDataSourceFactory dataSourceFactory = new DefaultDataSourceFactory(this.context,
-                Util.getUserAgent(this.context, "exoPlayerLibrary"));
-        player.setForegroundMode(true);
-        // playlist/single audio load
-        if (this.playerMode == PlayerMode.PLAYLIST) {
-            ConcatenatingMediaSource concatenatingMediaSource = new ConcatenatingMediaSource();
-            for (AudioObject audioObject : audioObjects) {
-                MediaSource mediaSource = new ProgressiveMediaSource.Factory(dataSourceFactory)
-                        .createMediaSource(Uri.parse(audioObject.getUrl()));
-                concatenatingMediaSource.addMediaSource(mediaSource);
-            }
-            player.prepare(concatenatingMediaSource);
-            if(index != 0) {
-                player.seekTo(index,0);
-            }
-        } else {
-            MediaSource mediaSource = new ProgressiveMediaSource.Factory(dataSourceFactory)
-                    .createMediaSource(Uri.parse(this.audioObject.getUrl()));
-            player.prepare(mediaSource);
-        }
-        // handle audio focus
-        if (this.respectAudioFocus) { // ! TODO catch duck pause!
-            AudioAttributes audioAttributes = new AudioAttributes.Builder().setUsage(C.USAGE_MEDIA)
-                    .setContentType(C.CONTENT_TYPE_MUSIC).build();
-            player.setAudioAttributes(audioAttributes, true);
-        }
-        // set repeat mode
-        if (repeatMode) {
-            player.setRepeatMode(player.REPEAT_MODE_ALL);
-        }
+        controller.initExoPlayer(index);
     }
 
     @Override
     public void play(AudioObject audioObject) {
-        if(this.completed){
-            this.resume();
-        }else{
-            this.released = false;
-
-            this.audioObject = audioObject;
-            this.initExoPlayer(0);
-            initEventListeners();
-            player.setPlayWhenReady(true);
-        }
+        controller.play(audioObject);
     }
 
     @Override
     public void playAll(ArrayList<AudioObject> audioObjects, int index) {
-        if(this.completed || this.stopped){
-            this.resume();
-        }else{
-            this.released = false;
-
-            this.audioObjects = audioObjects;
-            this.initExoPlayer(index);
-            initEventListeners();
-            player.setPlayWhenReady(true);
-        }
+        controller.playAll(audioObjects, index);
     }
 
     @Override
     public void next() {
-        if (!this.released) {
-            player.next();
-            resume();
-        }
+        controller.next();
     }
 
     @Override
     public void previous() { // !TODO first time go to pos 0 then second time previous (maybe make counter for 3 sec)
-        if (!this.released) {
-            player.previous();
-            resume();
-        }
+        controller.previous();
     }
 
     @Override
     public void pause() {
-        if (!this.released && this.playing) {
-            player.setPlayWhenReady(false);
-//            stopForeground(false);
-        }
+        controller.pause();
     }
 
     @Override
     public void resume() {
-        if (!this.released && !this.playing) {
-            if(!this.stopped){
-                this.completed = false;
-                player.setPlayWhenReady(true);
-            }else{
-                this.stopped = false;
-                this.initExoPlayer(0);
-                initEventListeners();
-                player.setPlayWhenReady(true);
-            }
-        }
+        controller.resume();
     }
 
     @Override
     public void stop() {
-        if (!this.released) {
-            player.stop(true);
-//            stopForeground(true);
-        }
+        controller.stop();
     }
 
     @Override
     public void release() {
-        if (!this.released) {
-            if (this.playing) {
-//                stopForeground(true);
-            }
+        if (controller.release()) {
             this.initialized = false;
-            this.buffering = false;
-            this.playing = false;
-            this.stopped = false;
-            this.released = true;
-            this.completed = false;
-
-            this.audioObject = null;
-            this.audioObjects = null;
-            player.release();
-            player = null;
+            if (mediaSession != null) {
+                mediaSession.release();
+                mediaSession = null;
+            }
             ref.handleStateChange(this, PlayerState.RELEASED);
-            stopSelf();
         }
+        service.removeSession(this.playerId);
     }
 
-
     @Override
     public void seekPosition(int position) {
-        if (!this.released) {
-            player.seekTo(player.getCurrentWindowIndex(), position);
-        }
+        controller.seekPosition(position);
     }
 
     @Override
     public void seekIndex(int index) {
-        if (!this.released) {
-            player.seekTo(index, 0);
-        }
+        controller.seekIndex(index);
+    }
+
+    @Override
+    public void preload(AudioObject audioObject) {
+        controller.preload(audioObject);
+    }
+
+    @Override
+    public void addItems(ArrayList<AudioObject> audioObjects, int index) {
+        controller.addItems(audioObjects, index);
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        controller.removeRange(fromIndex, toIndex);
+    }
+
+    @Override
+    public void moveItem(int fromIndex, int toIndex) {
+        controller.moveItem(fromIndex, toIndex);
+    }
+
+    @Override
+    public void replaceItem(int index, AudioObject audioObject) {
+        controller.replaceItem(index, audioObject);
     }
 
     @Override
     public boolean isPlaying() {
-        return this.playing;
+        return controller.isPlaying();
     }
 
     @Override
@@ -313,12 +218,12 @@ public class ForegroundAudioPlayer extends Service implements AudioPlayer {
 
     @Override
     public boolean isPlayerReleased() {
-        return this.released;
+        return controller.isReleased();
     }
 
     @Override
     public boolean isPlayerCompleted() {
-        return this.completed;
+        return controller.isCompleted();
     }
 
     @Override
@@ -328,135 +233,72 @@ public class ForegroundAudioPlayer extends Service implements AudioPlayer {
 
     @Override
     public long getDuration() {
-        if (!this.released) {
-            return player.getDuration();
-        } else {
-            return -1;
-        }
+        return controller.getDuration();
     }
 
     @Override
     public long getCurrentPosition() {
-        if (!this.released) {
-            return player.getCurrentPosition();
-        } else {
-            return -1;
-        }
+        return controller.getCurrentPosition();
+    }
+
+    @Override
+    public long getBufferedPosition() {
+        return controller.getBufferedPosition();
     }
 
     @Override
     public int getCurrentPlayingAudioIndex() {
-        return player.getCurrentWindowIndex();
+        return controller.getCurrentIndex();
     }
 
     @Override
-    public void setPlayerAttributes(boolean repeatMode, boolean respectAudioFocus, PlayerMode playerMode) {
-        this.repeatMode = repeatMode;
-        this.respectAudioFocus = respectAudioFocus;
-        this.playerMode = playerMode;
+    public long getStartupLatency() {
+        return controller.getStartupLatency();
     }
 
     @Override
-    public void setVolume(float volume) {
-        if (!this.released && this.volume != volume) {
-            this.volume = volume;
-            player.setVolume(volume);
-        }
+    public Map<String, Object> getMetrics() {
+        return controller.getMetrics();
     }
 
     @Override
-    public void setRepeatMode(boolean repeatMode){
-        if(!this.released && this.repeatMode != repeatMode){
-            this.repeatMode = repeatMode;
-            if(this.repeatMode){
-                player.setRepeatMode(player.REPEAT_MODE_ALL);
-            }else{
-                player.setRepeatMode(player.REPEAT_MODE_OFF);
-            }
-        }
+    public void resetMetrics() {
+        controller.resetMetrics();
     }
 
-    private void initEventListeners() {
-        player.addAnalyticsListener(new AnalyticsListener() {
-            @Override
-            public void onAudioSessionId(EventTime eventTime, int audioSessionId) {
-                ref.handleAudioSessionIdChange(foregroundAudioPlayer, audioSessionId);
-            }
-        });
-        player.addListener(new Player.EventListener() {
+    @Override
+    public void setPlayerAttributes(boolean repeatMode, boolean respectAudioFocus, PlayerMode playerMode, BufferConfig bufferConfig) {
+        controller.setPlayerAttributes(repeatMode, respectAudioFocus, playerMode, bufferConfig);
+    }
 
-            @Override
-            public void onTracksChanged(TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
-//                if (playerMode == PlayerMode.PLAYLIST) {
-//                    mediaNotificationManager.makeNotification(audioObjects.get(player.getCurrentWindowIndex()), true);
-//                } else {
-//                    mediaNotificationManager.makeNotification(audioObject, true);
-//                }
-                ref.handlePlayerIndex(foregroundAudioPlayer);
-            }
+    @Override
+    public void setBufferConfig(BufferConfig bufferConfig) {
+        controller.setBufferConfig(bufferConfig);
+    }
 
-            @Override
-            public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
-                switch (playbackState) {
-                    case Player.STATE_BUFFERING: {
-                        // buffering
-                        buffering = true;
-                        ref.handleStateChange(foregroundAudioPlayer, PlayerState.BUFFERING);
-                        break;
-                    }
-                    case Player.STATE_READY: {
-                        if(completed) {
-                            buffering = false;
-//                            mediaNotificationManager.makeNotification(false);
-                            ref.handleStateChange(foregroundAudioPlayer, PlayerState.COMPLETED);
-                        } else if (buffering) {
-                            // playing
-                            buffering = false;
-                            playing = true;
-//                            mediaNotificationManager.makeNotification(true);
-
-                            ref.handleStateChange(foregroundAudioPlayer, PlayerState.PLAYING);
-                            ref.handlePositionUpdates();
-                        } else if (playWhenReady) {
-                            // resumed
-                            playing = true;
-//                            mediaNotificationManager.makeNotification(true);
-                            ref.handlePositionUpdates();
-                            ref.handleStateChange(foregroundAudioPlayer, PlayerState.PLAYING);
-                        } else if(!playWhenReady) {
-                            // paused
-                            playing = false;
-//                            mediaNotificationManager.makeNotification(false);
-                            ref.handleStateChange(foregroundAudioPlayer, PlayerState.PAUSED);
-                        }
-
-                        break;
-                    }
-                    case Player.STATE_ENDED: {
-                        // completed
-                        playing = false;
-                        completed = true;
-
-//                        stopForeground(false);
-                        player.setPlayWhenReady(false);
-                        player.seekTo(0, 0);
-                        break;
-                    }
-                    case Player.STATE_IDLE: {
-                        // stopped
-                        playing = false;
-                        stopped = true;
-                        completed = false;
-                        buffering = false;
-//                        mediaNotificationManager.makeNotification(false);
-//                        mediaNotificationManager.hideNotification();
-                        ref.handleStateChange(foregroundAudioPlayer, PlayerState.STOPPED);
-
-                        break;
-                    } // handle of released is in release method!
-                }
-            }
-        });
+    @Override
+    public void setCacheBypass(boolean cacheBypass) {
+        controller.setCacheBypass(cacheBypass);
+    }
+
+    @Override
+    public void setLazyPlaylist(boolean lazyPlaylist, int lazyWindowSize) {
+        controller.setLazyPlaylist(lazyPlaylist, lazyWindowSize);
+    }
+
+    @Override
+    public void setPrefetch(int prefetchCount, long prefetchBytes) {
+        controller.setPrefetch(prefetchCount, prefetchBytes);
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        controller.setVolume(volume);
+    }
+
+    @Override
+    public void setRepeatMode(boolean repeatMode) {
+        controller.setRepeatMode(repeatMode);
     }
 
     //// private MediaSessionCompat.Callback mediaSessionCallback = new
@@ -0,0 +1,161 @@
+package com.mb.exo_player.players;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.RenderersFactory;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.mb.exo_player.notifications.MediaNotificationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bound foreground service hosting every ForegroundAudioPlayer session, keyed by playerId.
+ *
+ * Sessions are created and released on the plugin's playback thread, the service stops itself
+ * once the last session is released. When the app's task is removed it releases all sessions
+ * itself and tells the plugin through its {@link Listener}.
+ */
+public class ForegroundPlaybackService extends Service {
+    public static final String EXTRA_PLAYER_ID = "playerId";
+
+    /** Called on the playback thread when the service released its sessions on its own. */
+    public interface Listener {
+        void onSessionsRemoved(List<String> playerIds);
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Map<String, ForegroundAudioPlayer> sessions = new HashMap<>();
+    private Handler playbackHandler;
+    private Listener listener;
+
+    public class LocalBinder extends Binder {
+        public ForegroundPlaybackService getService() {
+            return ForegroundPlaybackService.this;
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ServiceRegistry.onServiceCreated(this);
+    }
+
+    @Override
+    public void onDestroy() {
+        ServiceRegistry.onServiceDestroyed(this);
+        super.onDestroy();
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public int onStartCommand(final Intent intent, int flags, int startId) {
+        if (intent != null && intent.getAction() == null) {
+            // started by the plugin with startForegroundService, which has to be answered with startForeground
+            startForeground(MediaNotificationManager.NOTIFICATION_ID, MediaNotificationManager.buildServiceNotification(this));
+        }
+        if (intent != null && intent.getAction() != null && playbackHandler != null) {
+            final String playerId = intent.getStringExtra(EXTRA_PLAYER_ID);
+            playbackHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    ForegroundAudioPlayer session = getSession(playerId);
+                    if (session != null) {
+                        session.handleIntent(intent);
+                    }
+                }
+            });
+        }
+        return START_STICKY;
+    }
+
+    @Override
+    public void onTaskRemoved(Intent rootIntent) {
+        super.onTaskRemoved(rootIntent);
+        if (playbackHandler == null) {
+            stopSelf();
+            return;
+        }
+        // players may only be used from their application looper, the plugin's playback thread
+        playbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                ArrayList<String> playerIds;
+                ArrayList<ForegroundAudioPlayer> removedSessions;
+                synchronized (ForegroundPlaybackService.this) {
+                    playerIds = new ArrayList<>(sessions.keySet());
+                    removedSessions = new ArrayList<>(sessions.values());
+                    sessions.clear();
+                }
+                for (ForegroundAudioPlayer session : removedSessions) {
+                    session.release();
+                }
+                Listener currentListener = getListener();
+                if (currentListener != null) {
+                    currentListener.onSessionsRemoved(playerIds);
+                }
+                stopForeground(true);
+                stopSelf();
+            }
+        });
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // has to be called from the playback thread
+    public synchronized ForegroundAudioPlayer createSession(String playerId) {
+        if (playbackHandler == null) {
+            playbackHandler = new Handler(Looper.myLooper());
+        }
+        ForegroundAudioPlayer session = sessions.get(playerId);
+        if (session == null) {
+            session = new ForegroundAudioPlayer(this);
+            sessions.put(playerId, session);
+        }
+        return session;
+    }
+
+    public synchronized ForegroundAudioPlayer getSession(String playerId) {
+        return sessions.get(playerId);
+    }
+
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    synchronized void removeSession(String playerId) {
+        sessions.remove(playerId);
+        if (sessions.isEmpty()) {
+            stopForeground(true);
+            stopSelf();
+        }
+    }
+
+    RenderersFactory getRenderersFactory() {
+        return PlayerComponents.getRenderersFactory(this);
+    }
+
+    BandwidthMeter getBandwidthMeter() {
+        return PlayerComponents.getBandwidthMeter(this);
+    }
+
+    private synchronized Listener getListener() {
+        return listener;
+    }
+}
@@ -0,0 +1,822 @@
+package com.mb.exo_player.players;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.audio.AudioAttributes;
+import com.google.android.exoplayer2.source.ConcatenatingMediaSource;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.ShuffleOrder;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.mb.exo_player.MBExoPlayerPlugin;
+import com.mb.exo_player.cache.MediaCache;
+import com.mb.exo_player.cache.Prefetcher;
+import com.mb.exo_player.enums.PlayerMode;
+import com.mb.exo_player.enums.PlayerState;
+import com.mb.exo_player.interfaces.AudioPlayer;
+import com.mb.exo_player.interfaces.MediaSourceProvider;
+import com.mb.exo_player.metrics.PlaybackMetrics;
+import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.models.BufferConfig;
+import com.mb.exo_player.network.RetryPolicy;
+import com.mb.exo_player.sources.LazyMediaSource;
+import com.mb.exo_player.sources.MediaSources;
+import com.mb.exo_player.sources.VariantSelector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * ExoPlayer side of the background and foreground players, both delegate their playback to it.
+ *
+ * Covers single audio and playlist loading, playlist mutations, the lazy playlist window,
+ * prefetching, the preloaded standby instance and in place retries of failed loads. The owning
+ * player keeps its identity (playerId, service, media session). Called on the playback thread.
+ */
+final class PlaybackController {
+
+    interface PlayerFactory {
+        SimpleExoPlayer create(BufferConfig bufferConfig);
+    }
+
+    private final AudioPlayer owner;
+    private final PlayerFactory playerFactory;
+    private Context context;
+    private MBExoPlayerPlugin ref;
+
+    //player attributes
+    private float volume = 1;
+    private boolean repeatMode;
+    private boolean respectAudioFocus;
+    private PlayerMode playerMode;
+    private boolean cacheBypass;
+    private boolean lazyPlaylist;
+    private int lazyWindowSize;
+    private BufferConfig bufferConfig = BufferConfig.DEFAULT;
+    private int prefetchCount = 0;
+    private long prefetchBytes = 0;
+    private Prefetcher prefetcher;
+
+    //player states
+    private boolean buffering = false;
+    private boolean playing = false;
+    private boolean stopped = false;
+    private boolean released = true;
+    private boolean completed = false;
+
+    //ExoPlayer
+    private SimpleExoPlayer player;
+    private ConcatenatingMediaSource concatenatingMediaSource;
+    private AnalyticsListener analyticsListener;
+    private Player.EventListener eventListener;
+
+    //standby ExoPlayer buffering the next single audio, see preload()
+    private SimpleExoPlayer preloadPlayer;
+    private String preloadedUrl;
+
+    //time from play/playAll call to PLAYING state
+    private long playRequestedAt = 0;
+    private long startupLatency = -1;
+    private final PlaybackMetrics playbackMetrics = new PlaybackMetrics();
+
+    //last index sent to dart, moves without a track change when items are removed or moved
+    private int reportedIndex = C.INDEX_UNSET;
+
+    //load error recovery, see RetryPolicy
+    private Handler retryHandler;
+    private int retryAttempts = 0;
+    private boolean retryPending = false;
+    private boolean failed = false;
+    private final Runnable retryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            retryPending = false;
+            if (!released && player != null) {
+                // prepares the last source again at the failed window and position
+                player.retry();
+            }
+        }
+    };
+
+    //indexes of the items around the current one which may stay prepared, see updateLazyWindow()
+    private final HashSet<Integer> lazyWindow = new HashSet<>();
+
+    private ArrayList<AudioObject> audioObjects;
+    private AudioObject audioObject;
+
+    private final MediaSourceProvider mediaSourceProvider = new MediaSourceProvider() {
+        @Override
+        public MediaSource createMediaSource(AudioObject audioObject) {
+            return buildMediaSource(audioObject);
+        }
+    };
+
+    PlaybackController(AudioPlayer owner, PlayerFactory playerFactory) {
+        this.owner = owner;
+        this.playerFactory = playerFactory;
+    }
+
+    void attach(MBExoPlayerPlugin ref, Context context) {
+        this.ref = ref;
+        this.context = context;
+    }
+
+    // creates the ExoPlayer instance ahead of the first play call
+    void warmUp() {
+        if (player == null) {
+            player = createExoPlayer();
+            initEventListeners();
+        }
+    }
+
+    void initExoPlayer(int index) {
+        // the ExoPlayer instance lives until release, later calls only prepare new sources
+        warmUp();
+        // playlist/single audio load
+        if (playerMode == PlayerMode.PLAYLIST) {
+            // items are prepared once playback gets close to them, which is also when their variant is picked,
+            // a lazy playlist additionally drops prepared items leaving the window, see updateLazyWindow()
+            concatenatingMediaSource = new ConcatenatingMediaSource(false, true, new ShuffleOrder.DefaultShuffleOrder(0));
+            lazyWindow.clear();
+            ArrayList<MediaSource> mediaSources = new ArrayList<>(audioObjects.size());
+            for (AudioObject audioObject : audioObjects) {
+                mediaSources.add(buildPlaylistItemSource(audioObject));
+            }
+            concatenatingMediaSource.addMediaSources(mediaSources);
+            player.prepare(concatenatingMediaSource);
+            if (index != 0) {
+                player.seekTo(index, 0);
+            }
+        } else {
+            player.prepare(buildMediaSource(audioObject));
+        }
+        applyPlayerAttributes();
+    }
+
+    void play(AudioObject audioObject) {
+        this.released = false;
+        this.stopped = false;
+        this.completed = false;
+
+        cancelRetry();
+        this.audioObject = audioObject;
+        this.playRequestedAt = SystemClock.elapsedRealtime();
+        playbackMetrics.onPlayRequested();
+        if (preloadPlayer != null && audioObject.getUrl().equals(preloadedUrl) && playerMode == PlayerMode.SINGLE
+                && preloadPlayer.getPlaybackState() != Player.STATE_IDLE) {
+            // already buffered by preload, continue on the standby instance without preparing again
+            swapPreloadPlayer();
+        } else {
+            initExoPlayer(0);
+        }
+        player.setPlayWhenReady(true);
+    }
+
+    void playAll(ArrayList<AudioObject> audioObjects, int index) {
+        this.released = false;
+        this.stopped = false;
+        this.completed = false;
+
+        cancelRetry();
+        this.audioObjects = audioObjects;
+        this.playRequestedAt = SystemClock.elapsedRealtime();
+        playbackMetrics.onPlayRequested();
+        initExoPlayer(index);
+        player.setPlayWhenReady(true);
+    }
+
+    void next() {
+        if (!released) {
+            player.next();
+            resume();
+        }
+    }
+
+    void previous() {
+        if (!released) {
+            player.previous();
+            resume();
+        }
+    }
+
+    void pause() {
+        if (!released && playing) {
+            player.setPlayWhenReady(false);
+        }
+    }
+
+    void resume() {
+        if (!released && !playing) {
+            if (!stopped) {
+                completed = false;
+                player.setPlayWhenReady(true);
+            } else {
+                stopped = false;
+                if (failed) {
+                    // stopped by a load error, continue where it failed instead of restarting
+                    cancelRetry();
+                    player.retry();
+                } else {
+                    initExoPlayer(0);
+                }
+                player.setPlayWhenReady(true);
+            }
+        }
+    }
+
+    void stop() {
+        if (!released) {
+            cancelRetry();
+            cancelPrefetch();
+            player.stop(true);
+        }
+    }
+
+    // returns whether a bound player was released, the owner then reports RELEASED
+    boolean release() {
+        boolean wasBound = !released;
+        resetState();
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+        releasePreloadPlayer();
+        return wasBound;
+    }
+
+    // unbinds from the playback but keeps the ExoPlayer instance for reuse
+    boolean recycle() {
+        if (released) {
+            return false;
+        }
+        resetState();
+        volume = 1;
+        startupLatency = -1;
+        playbackMetrics.reset();
+        player.stop(true);
+        player.setVolume(1);
+        if (preloadPlayer != null) {
+            preloadPlayer.stop(true);
+            preloadedUrl = null;
+        }
+        // the next owner starts from the default profile like a new player
+        applyBufferConfig(BufferConfig.DEFAULT, false);
+        return true;
+    }
+
+    private void resetState() {
+        buffering = false;
+        playing = false;
+        stopped = false;
+        released = true;
+        completed = false;
+
+        audioObject = null;
+        audioObjects = null;
+        concatenatingMediaSource = null;
+        lazyWindow.clear();
+        cancelRetry();
+        cancelPrefetch();
+    }
+
+    void seekPosition(int position) {
+        if (!released) {
+            player.seekTo(player.getCurrentWindowIndex(), position);
+        }
+    }
+
+    void seekIndex(int index) {
+        if (!released && playerMode == PlayerMode.PLAYLIST) {
+            player.seekTo(index, 0);
+        }
+    }
+
+    void preload(AudioObject audioObject) {
+        if (context == null || audioObject.getUrl().equals(preloadedUrl)) {
+            return;
+        }
+        if (preloadPlayer == null) {
+            preloadPlayer = createExoPlayer();
+        }
+        preloadedUrl = audioObject.getUrl();
+        preloadPlayer.setPlayWhenReady(false);
+        preloadPlayer.prepare(buildMediaSource(audioObject));
+    }
+
+    void addItems(ArrayList<AudioObject> audioObjects, int index) {
+        if (!released && playerMode == PlayerMode.PLAYLIST) {
+            if (index < 0 || index > this.audioObjects.size()) {
+                index = this.audioObjects.size();
+            }
+            ArrayList<MediaSource> mediaSources = new ArrayList<>(audioObjects.size());
+            for (AudioObject audioObject : audioObjects) {
+                mediaSources.add(buildPlaylistItemSource(audioObject));
+            }
+            this.audioObjects.addAll(index, audioObjects);
+            concatenatingMediaSource.addMediaSources(index, mediaSources);
+            shiftLazyWindow(index, audioObjects.size());
+        }
+    }
+
+    void removeRange(int fromIndex, int toIndex) {
+        if (!released && playerMode == PlayerMode.PLAYLIST
+                && fromIndex >= 0 && fromIndex < toIndex && toIndex <= audioObjects.size()) {
+            audioObjects.subList(fromIndex, toIndex).clear();
+            concatenatingMediaSource.removeMediaSourceRange(fromIndex, toIndex);
+            shiftLazyWindow(fromIndex, fromIndex - toIndex);
+        }
+    }
+
+    void moveItem(int fromIndex, int toIndex) {
+        if (!released && playerMode == PlayerMode.PLAYLIST && fromIndex != toIndex
+                && fromIndex >= 0 && fromIndex < audioObjects.size() && toIndex >= 0 && toIndex < audioObjects.size()) {
+            audioObjects.add(toIndex, audioObjects.remove(fromIndex));
+            concatenatingMediaSource.moveMediaSource(fromIndex, toIndex);
+            boolean inLazyWindow = lazyWindow.contains(fromIndex);
+            shiftLazyWindow(fromIndex, -1);
+            shiftLazyWindow(toIndex, 1);
+            if (inLazyWindow) {
+                lazyWindow.add(toIndex);
+            }
+        }
+    }
+
+    void replaceItem(int index, AudioObject audioObject) {
+        if (!released && playerMode == PlayerMode.PLAYLIST && index >= 0 && index < audioObjects.size()) {
+            audioObjects.set(index, audioObject);
+            // insert the new item before dropping the old one so that the playlist never shrinks in between
+            concatenatingMediaSource.addMediaSource(index + 1, buildPlaylistItemSource(audioObject));
+            concatenatingMediaSource.removeMediaSource(index);
+        }
+    }
+
+    boolean isPlaying() {
+        return playing;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    boolean isReleased() {
+        return released;
+    }
+
+    boolean isCompleted() {
+        return completed;
+    }
+
+    // the single audio or the playlist item at the current window
+    @Nullable
+    AudioObject getCurrentAudioObject() {
+        if (playerMode == PlayerMode.PLAYLIST) {
+            return audioObjects != null && player != null ? audioObjects.get(player.getCurrentWindowIndex()) : null;
+        }
+        return audioObject;
+    }
+
+    PlayerMode getPlayerMode() {
+        return playerMode;
+    }
+
+    ArrayList<AudioObject> getAudioObjects() {
+        return audioObjects;
+    }
+
+    long getDuration() {
+        return !released ? player.getDuration() : -1;
+    }
+
+    long getCurrentPosition() {
+        return !released ? player.getCurrentPosition() : -1;
+    }
+
+    long getBufferedPosition() {
+        return !released ? player.getBufferedPosition() : -1;
+    }
+
+    int getCurrentIndex() {
+        return player != null ? player.getCurrentWindowIndex() : C.INDEX_UNSET;
+    }
+
+    long getStartupLatency() {
+        return startupLatency;
+    }
+
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = playbackMetrics.getStats();
+        metrics.put("startupLatencyMs", startupLatency);
+        return metrics;
+    }
+
+    void resetMetrics() {
+        playbackMetrics.reset();
+    }
+
+    void setPlayerAttributes(boolean repeatMode, boolean respectAudioFocus, PlayerMode playerMode, BufferConfig bufferConfig) {
+        this.repeatMode = repeatMode;
+        this.respectAudioFocus = respectAudioFocus;
+        this.playerMode = playerMode;
+        // a fresh or recycled player falls back to the default profile, the following play call prepares it
+        applyBufferConfig(bufferConfig != null ? bufferConfig : BufferConfig.DEFAULT, false);
+    }
+
+    void setBufferConfig(BufferConfig bufferConfig) {
+        applyBufferConfig(bufferConfig, true);
+    }
+
+    // the LoadControl is fixed at construction, a new profile replaces the ExoPlayer instance right away
+    // and optionally continues the current playback on it
+    private void applyBufferConfig(BufferConfig bufferConfig, boolean continuePlayback) {
+        if (bufferConfig == null || bufferConfig.equals(this.bufferConfig)) {
+            return;
+        }
+        this.bufferConfig = bufferConfig;
+        releasePreloadPlayer();
+        if (player == null) {
+            return;
+        }
+        boolean active = continuePlayback && !released && !stopped && player.getPlaybackState() != Player.STATE_IDLE;
+        int windowIndex = player.getCurrentWindowIndex();
+        long position = player.getCurrentPosition();
+        boolean playWhenReady = player.getPlayWhenReady();
+        cancelRetry();
+        player.release();
+        player = createExoPlayer();
+        initEventListeners();
+        if (active) {
+            initExoPlayer(windowIndex);
+            player.seekTo(windowIndex, position);
+            player.setPlayWhenReady(playWhenReady);
+        }
+    }
+
+    void setCacheBypass(boolean cacheBypass) {
+        this.cacheBypass = cacheBypass;
+    }
+
+    void setLazyPlaylist(boolean lazyPlaylist, int lazyWindowSize) {
+        this.lazyPlaylist = lazyPlaylist;
+        this.lazyWindowSize = lazyWindowSize;
+    }
+
+    void setPrefetch(int prefetchCount, long prefetchBytes) {
+        this.prefetchCount = prefetchCount;
+        this.prefetchBytes = prefetchBytes;
+    }
+
+    void setVolume(float volume) {
+        if (!released && this.volume != volume) {
+            this.volume = volume;
+            player.setVolume(volume);
+        }
+    }
+
+    void setRepeatMode(boolean repeatMode) {
+        if (!released && this.repeatMode != repeatMode) {
+            this.repeatMode = repeatMode;
+            player.setRepeatMode(repeatMode ? Player.REPEAT_MODE_ALL : Player.REPEAT_MODE_OFF);
+        }
+    }
+
+    private SimpleExoPlayer createExoPlayer() {
+        long startedAt = System.nanoTime();
+        long heapBytesBefore = PlayerComponents.getUsedHeapBytes();
+        SimpleExoPlayer exoPlayer = playerFactory.create(bufferConfig);
+        PlayerComponents.recordConstruction(startedAt, heapBytesBefore);
+        return exoPlayer;
+    }
+
+    private void applyPlayerAttributes() {
+        //handle audio focus
+        if (respectAudioFocus) {
+            AudioAttributes audioAttributes = new AudioAttributes.Builder()
+                    .setUsage(C.USAGE_MEDIA)
+                    .setContentType(C.CONTENT_TYPE_MUSIC)
+                    .build();
+            player.setAudioAttributes(audioAttributes, true);
+        } else {
+            player.setAudioAttributes(AudioAttributes.DEFAULT, false);
+        }
+        player.setRepeatMode(repeatMode ? Player.REPEAT_MODE_ALL : Player.REPEAT_MODE_OFF);
+        player.setVolume(volume);
+    }
+
+    // the preloaded instance becomes the playing one, the previous one is kept as next standby
+    private void swapPreloadPlayer() {
+        SimpleExoPlayer previousPlayer = player;
+        player = preloadPlayer;
+        preloadPlayer = previousPlayer;
+        preloadedUrl = null;
+        concatenatingMediaSource = null;
+        if (previousPlayer != null) {
+            previousPlayer.removeAnalyticsListener(analyticsListener);
+            previousPlayer.removeAnalyticsListener(playbackMetrics);
+            previousPlayer.removeListener(eventListener);
+            previousPlayer.stop(true);
+            player.addAnalyticsListener(analyticsListener);
+            player.addAnalyticsListener(playbackMetrics);
+            player.addListener(eventListener);
+        } else {
+            initEventListeners();
+        }
+        applyPlayerAttributes();
+        // the standby player got its audio session before our listener was attached
+        int audioSessionId = player.getAudioSessionId();
+        if (audioSessionId != C.AUDIO_SESSION_ID_UNSET) {
+            ref.handleAudioSessionIdChange(owner, audioSessionId);
+        }
+    }
+
+    // caches the head of the next prefetchCount items and of the previous one
+    private void prefetchAround() {
+        if (prefetchCount <= 0 || cacheBypass || playerMode != PlayerMode.PLAYLIST || audioObjects == null) {
+            return;
+        }
+        Timeline timeline = player.getCurrentTimeline();
+        if (timeline.isEmpty()) {
+            return;
+        }
+        ArrayList<Integer> indexes = new ArrayList<>(prefetchCount + 1);
+        addPlayOrderIndexes(timeline, prefetchCount, true, indexes);
+        addPlayOrderIndexes(timeline, 1, false, indexes);
+        ArrayList<String> urls = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            addPrefetchUrl(urls, index);
+        }
+        if (prefetcher == null) {
+            prefetcher = new Prefetcher(context);
+        }
+        prefetcher.prefetch(urls, prefetchBytes);
+    }
+
+    // adds up to count items after or before the current one in play order, which follows repeat and shuffle
+    private void addPlayOrderIndexes(Timeline timeline, int count, boolean next, Collection<Integer> indexes) {
+        // next() also moves on in repeat one mode
+        int repeatMode = player.getRepeatMode() == Player.REPEAT_MODE_OFF ? Player.REPEAT_MODE_OFF : Player.REPEAT_MODE_ALL;
+        boolean shuffle = player.getShuffleModeEnabled();
+        int currentIndex = player.getCurrentWindowIndex();
+        int index = currentIndex;
+        for (int i = 0; i < count; i++) {
+            index = next ? timeline.getNextWindowIndex(index, repeatMode, shuffle) : timeline.getPreviousWindowIndex(index, repeatMode, shuffle);
+            if (index == C.INDEX_UNSET || index == currentIndex) {
+                break;
+            }
+            indexes.add(index);
+        }
+    }
+
+    private void addPrefetchUrl(ArrayList<String> urls, int index) {
+        // adaptive streams only start with a playlist, their segments depend on the selected variant
+        if (index >= audioObjects.size() || !MediaSources.isProgressive(audioObjects.get(index))) {
+            return;
+        }
+        AudioObject audioObject = audioObjects.get(index);
+        MediaSource mediaSource = index < concatenatingMediaSource.getSize() ? concatenatingMediaSource.getMediaSource(index) : null;
+        if (mediaSource instanceof LazyMediaSource && !((LazyMediaSource) mediaSource).isMaterialized()) {
+            // the variant the item would get if it was prepared now
+            urls.add(VariantSelector.select(context, audioObject));
+        } else {
+            urls.add(audioObject.getPlaybackUrl());
+        }
+    }
+
+    private void reportPlayerIndex() {
+        reportedIndex = player.getCurrentWindowIndex();
+        ref.handlePlayerIndex(owner);
+    }
+
+    private void cancelPrefetch() {
+        if (prefetcher != null) {
+            prefetcher.cancel();
+        }
+    }
+
+    private void cancelRetry() {
+        if (retryHandler != null) {
+            retryHandler.removeCallbacks(retryRunnable);
+        }
+        retryPending = false;
+        retryAttempts = 0;
+        failed = false;
+    }
+
+    private void releasePreloadPlayer() {
+        if (preloadPlayer != null) {
+            preloadPlayer.release();
+            preloadPlayer = null;
+            preloadedUrl = null;
+        }
+    }
+
+    private void markPlaybackStarted() {
+        if (playRequestedAt != 0) {
+            startupLatency = SystemClock.elapsedRealtime() - playRequestedAt;
+            playRequestedAt = 0;
+        }
+    }
+
+    private MediaSource buildMediaSource(AudioObject audioObject) {
+        audioObject.setPlaybackUrl(VariantSelector.select(context, audioObject));
+        Uri uri = Uri.parse(audioObject.getPlaybackUrl());
+        // live playlists and manifests must be refetched, adaptive streams skip the streaming cache
+        boolean bypass = cacheBypass || !MediaSources.isProgressive(audioObject);
+        return MediaSources.build(audioObject, MediaCache.getDataSourceFactory(context, uri, bypass));
+    }
+
+    private MediaSource buildPlaylistItemSource(AudioObject audioObject) {
+        // items with variants resolve them when prepared instead of when added
+        if (lazyPlaylist || !audioObject.getVariants().isEmpty()) {
+            return new LazyMediaSource(audioObject, mediaSourceProvider);
+        }
+        return buildMediaSource(audioObject);
+    }
+
+    // swaps prepared items which left the window around the current item back to placeholders,
+    // the window follows play order and only items which entered or left it are looked at
+    private void updateLazyWindow() {
+        if (!lazyPlaylist || playerMode != PlayerMode.PLAYLIST || concatenatingMediaSource == null) {
+            return;
+        }
+        Timeline timeline = player.getCurrentTimeline();
+        if (timeline.isEmpty()) {
+            return;
+        }
+        HashSet<Integer> window = new HashSet<>();
+        window.add(player.getCurrentWindowIndex());
+        addPlayOrderIndexes(timeline, lazyWindowSize, true, window);
+        addPlayOrderIndexes(timeline, lazyWindowSize, false, window);
+        for (int index : lazyWindow) {
+            if (window.contains(index) || index >= concatenatingMediaSource.getSize()) {
+                continue;
+            }
+            MediaSource mediaSource = concatenatingMediaSource.getMediaSource(index);
+            if (mediaSource instanceof LazyMediaSource && ((LazyMediaSource) mediaSource).isMaterialized()) {
+                concatenatingMediaSource.removeMediaSource(index);
+                concatenatingMediaSource.addMediaSource(index, new LazyMediaSource(((LazyMediaSource) mediaSource).getAudioObject(), mediaSourceProvider));
+            }
+        }
+        lazyWindow.clear();
+        lazyWindow.addAll(window);
+    }
+
+    // keeps the window on the same items when count items are inserted at index, or removed from it when count is negative
+    private void shiftLazyWindow(int index, int count) {
+        if (lazyWindow.isEmpty()) {
+            return;
+        }
+        ArrayList<Integer> indexes = new ArrayList<>(lazyWindow);
+        lazyWindow.clear();
+        for (int i : indexes) {
+            if (i < index) {
+                lazyWindow.add(i);
+            } else if (i >= index - count) {
+                lazyWindow.add(i + count);
+            }
+        }
+    }
+
+    private void initEventListeners() {
+        analyticsListener = new AnalyticsListener() {
+            @Override
+            public void onAudioSessionId(EventTime eventTime, int audioSessionId) {
+                if (released) {
+                    return;
+                }
+                ref.handleAudioSessionIdChange(owner, audioSessionId);
+            }
+        };
+        player.addAnalyticsListener(analyticsListener);
+        player.addAnalyticsListener(playbackMetrics);
+        if (retryHandler == null) {
+            retryHandler = new Handler(player.getApplicationLooper());
+        }
+        eventListener = new Player.EventListener() {
+
+            @Override
+            public void onPlayerError(ExoPlaybackException error) {
+                if (released) {
+                    return;
+                }
+                failed = true;
+                RetryPolicy retryPolicy = RetryPolicy.get();
+                boolean willRetry = retryPolicy.shouldRetry(error, retryAttempts);
+                long retryDelayMs = 0;
+                if (willRetry) {
+                    retryAttempts++;
+                    retryDelayMs = retryPolicy.getBackoffDelayMs(retryAttempts);
+                    retryPending = true;
+                    playbackMetrics.onRetryScheduled();
+                    retryHandler.postDelayed(retryRunnable, retryDelayMs);
+                }
+                ref.handleError(owner, RetryPolicy.describe(error, retryAttempts, willRetry, retryDelayMs));
+            }
+
+            @Override
+            public void onPositionDiscontinuity(int reason) {
+                updateLazyWindow();
+            }
+
+            @Override
+            public void onTracksChanged(TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
+                if (released) {
+                    return;
+                }
+                reportPlayerIndex();
+                updateLazyWindow();
+                prefetchAround();
+            }
+
+            @Override
+            public void onTimelineChanged(Timeline timeline, @Nullable Object manifest, int reason) {
+                if (!released && player.getCurrentWindowIndex() != reportedIndex) {
+                    reportPlayerIndex();
+                }
+            }
+
+            @Override
+            public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
+                if (released) {
+                    // recycled players stay attached to their ExoPlayer instance
+                    return;
+                }
+                switch (playbackState) {
+                    case Player.STATE_BUFFERING: {
+                        // buffering
+                        buffering = true;
+                        ref.handleStateChange(owner, PlayerState.BUFFERING);
+                        break;
+                    }
+                    case Player.STATE_READY: {
+                        if (failed) {
+                            // recovered by a retry
+                            failed = false;
+                            retryAttempts = 0;
+                            playbackMetrics.onRecovered();
+                        }
+                        if (completed) {
+                            buffering = false;
+                            ref.handleStateChange(owner, PlayerState.COMPLETED);
+                        } else if (buffering) {
+                            // playing
+                            buffering = false;
+                            playing = true;
+                            markPlaybackStarted();
+                            ref.handlePositionUpdates();
+                            ref.handleStateChange(owner, PlayerState.PLAYING);
+                        } else if (playWhenReady) {
+                            // resumed
+                            playing = true;
+                            markPlaybackStarted();
+                            ref.handlePositionUpdates();
+                            ref.handleStateChange(owner, PlayerState.PLAYING);
+                        } else {
+                            // paused
+                            playing = false;
+                            ref.handleStateChange(owner, PlayerState.PAUSED);
+                        }
+                        break;
+                    }
+                    case Player.STATE_ENDED: {
+                        // completed
+                        playing = false;
+                        completed = true;
+                        player.setPlayWhenReady(false);
+                        player.seekTo(0, 0);
+                        break;
+                    }
+                    case Player.STATE_IDLE: {
+                        if (retryPending) {
+                            // failed load is retried in place, the player is not reported as stopped
+                            buffering = true;
+                            ref.handleStateChange(owner, PlayerState.BUFFERING);
+                            break;
+                        }
+                        // stopped
+                        playing = false;
+                        stopped = true;
+                        completed = false;
+                        buffering = false;
+                        ref.handleStateChange(owner, PlayerState.STOPPED);
+                        break;
+                    }
+                    // handle of released is in release method!
+                }
+            }
+        };
+        player.addListener(eventListener);
+    }
+}
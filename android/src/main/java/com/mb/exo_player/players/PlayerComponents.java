@@ -0,0 +1,99 @@
+package com.mb.exo_player.players;
+
+import android.content.Context;
+
+import com.google.android.exoplayer2.DefaultRenderersFactory;
+import com.google.android.exoplayer2.RenderersFactory;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ExoPlayer components shared by all players of the plugin.
+ *
+ * One bandwidth meter keeps a single estimate for all concurrent streams instead of one cold
+ * estimate per player, the renderers factory is stateless and only creates renderers per player.
+ */
+public class PlayerComponents {
+    private static DefaultBandwidthMeter bandwidthMeter;
+    private static RenderersFactory defaultRenderersFactory;
+    private static RenderersFactory audioOnlyRenderersFactory;
+    private static boolean audioOnlyRenderers = true;
+
+    //construction cost of ExoPlayer instances, [0] default renderers, [1] audio-only renderers
+    private static final long[] constructions = new long[2];
+    private static final long[] constructionNanos = new long[2];
+    private static final long[] maxConstructionNanos = new long[2];
+    private static final long[] constructionHeapBytes = new long[2];
+
+    private PlayerComponents() {}
+
+    public static synchronized DefaultBandwidthMeter getBandwidthMeter(Context context) {
+        if (bandwidthMeter == null) {
+            bandwidthMeter = new DefaultBandwidthMeter.Builder(context.getApplicationContext()).build();
+        }
+        return bandwidthMeter;
+    }
+
+    public static synchronized RenderersFactory getRenderersFactory(Context context) {
+        if (audioOnlyRenderers) {
+            if (audioOnlyRenderersFactory == null) {
+                audioOnlyRenderersFactory = new AudioOnlyRenderersFactory(context);
+            }
+            return audioOnlyRenderersFactory;
+        }
+        if (defaultRenderersFactory == null) {
+            defaultRenderersFactory = new DefaultRenderersFactory(context.getApplicationContext());
+        }
+        return defaultRenderersFactory;
+    }
+
+    // only affects players created afterwards, kept to compare against the default renderers
+    public static synchronized void setAudioOnlyRenderers(boolean enabled) {
+        audioOnlyRenderers = enabled;
+    }
+
+    public static long getUsedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // called right after a player was built with the current renderers factory
+    public static synchronized void recordConstruction(long startedAtNanos, long heapBytesBefore) {
+        int type = audioOnlyRenderers ? 1 : 0;
+        long nanos = System.nanoTime() - startedAtNanos;
+        constructions[type]++;
+        constructionNanos[type] += nanos;
+        maxConstructionNanos[type] = Math.max(maxConstructionNanos[type], nanos);
+        // heap delta is an estimate, a GC during construction can make it negative
+        constructionHeapBytes[type] += Math.max(0, getUsedHeapBytes() - heapBytesBefore);
+    }
+
+    public static synchronized Map<String, Object> getConstructionStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("default", getConstructionStats(0));
+        stats.put("audioOnly", getConstructionStats(1));
+        stats.put("audioOnlyRenderers", audioOnlyRenderers);
+        return stats;
+    }
+
+    public static synchronized void resetConstructionStats() {
+        for (int type = 0; type < constructions.length; type++) {
+            constructions[type] = 0;
+            constructionNanos[type] = 0;
+            maxConstructionNanos[type] = 0;
+            constructionHeapBytes[type] = 0;
+        }
+    }
+
+    private static Map<String, Object> getConstructionStats(int type) {
+        long count = constructions[type];
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("count", count);
+        stats.put("averageMicros", count > 0 ? constructionNanos[type] / count / 1000 : 0);
+        stats.put("maxMicros", maxConstructionNanos[type] / 1000);
+        stats.put("averageHeapBytes", count > 0 ? constructionHeapBytes[type] / count : 0);
+        return stats;
+    }
+}
@@ -0,0 +1,30 @@
+package com.mb.exo_player.players;
+
+import android.app.Service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * In-process record of the plugin's running services.
+ *
+ * Services report their own lifecycle, so checking whether one runs is a set lookup instead of
+ * an ActivityManager query over every service on the device.
+ */
+public class ServiceRegistry {
+    private static final Set<Class<?>> runningServices = new HashSet<>();
+
+    private ServiceRegistry() {}
+
+    public static synchronized void onServiceCreated(Service service) {
+        runningServices.add(service.getClass());
+    }
+
+    public static synchronized void onServiceDestroyed(Service service) {
+        runningServices.remove(service.getClass());
+    }
+
+    public static synchronized boolean isRunning(Class<? extends Service> serviceClass) {
+        return runningServices.contains(serviceClass);
+    }
+}
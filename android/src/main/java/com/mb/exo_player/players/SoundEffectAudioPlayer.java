@@ -0,0 +1,474 @@
+package com.mb.exo_player.players;
+
+import android.app.Activity;
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFocusRequest;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.mb.exo_player.MBExoPlayerPlugin;
+import com.mb.exo_player.cache.PcmCache;
+import com.mb.exo_player.enums.PlayerMode;
+import com.mb.exo_player.enums.PlayerState;
+import com.mb.exo_player.interfaces.AudioPlayer;
+import com.mb.exo_player.interfaces.PcmBufferResponse;
+import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.models.BufferConfig;
+import com.mb.exo_player.models.PcmBuffer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Player for short, frequently replayed clips.
+ *
+ * The clip is decoded once into PcmCache and every play call triggers a static AudioTrack voice
+ * straight from memory, several voices of the same player can overlap. No buffering or
+ * position callbacks are sent, only STOPPED on load failures and RELEASED. With respectAudioFocus
+ * each clip holds transient focus while it plays and is stopped when the focus is lost.
+ */
+public class SoundEffectAudioPlayer implements AudioPlayer {
+    private static final int DEFAULT_MAX_VOICES = 4;
+
+    private Context context;
+    private MBExoPlayerPlugin ref;
+    private String playerId;
+
+    //player attributes
+    private float volume = 1;
+    private int maxVoices = DEFAULT_MAX_VOICES;
+    private boolean respectAudioFocus;
+
+    //player states
+    private boolean initialized = false;
+    private boolean released = true;
+
+    private AudioObject audioObject;
+    private PcmBuffer pcmBuffer;
+    private final ArrayList<AudioTrack> voices = new ArrayList<>();
+    private AudioTrack lastVoice;
+    private long lastTriggeredAt;
+
+    //time from play call to voice start
+    private long playRequestedAt = 0;
+    private long startupLatency = -1;
+
+    //transient audio focus, held until the last triggered clip ends
+    private Handler handler;
+    private AudioManager audioManager;
+    private AudioFocusRequest audioFocusRequest;
+    private boolean hasAudioFocus = false;
+    private final Runnable abandonAudioFocus = new Runnable() {
+        @Override
+        public void run() {
+            abandonAudioFocus();
+        }
+    };
+    private final AudioManager.OnAudioFocusChangeListener audioFocusChangeListener = new AudioManager.OnAudioFocusChangeListener() {
+        @Override
+        public void onAudioFocusChange(final int focusChange) {
+            // below API 26 the listener is called on the main thread, voices are used from the playback thread
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (focusChange == AudioManager.AUDIOFOCUS_LOSS || focusChange == AudioManager.AUDIOFOCUS_LOSS_TRANSIENT) {
+                        hasAudioFocus = false;
+                        stop();
+                    }
+                }
+            });
+        }
+    };
+
+    @Override
+    public void initAudioPlayer(MBExoPlayerPlugin ref, Activity activity, String playerId) {
+        this.initialized = true;
+
+        this.ref = ref;
+        this.context = activity.getApplicationContext();
+        this.playerId = playerId;
+        this.handler = new Handler(Looper.myLooper());
+        this.audioManager = (AudioManager) this.context.getSystemService(Context.AUDIO_SERVICE);
+    }
+
+    @Override
+    public void initExoPlayer(int index) {
+        // no ExoPlayer instance, sound effects are played from decoded pcm
+        if (audioObject == null) {
+            return;
+        }
+        final AudioObject requestedAudioObject = audioObject;
+        PcmCache.load(this.context, requestedAudioObject.getUrl(), new PcmBufferResponse() {
+            @Override
+            public void processFinish(PcmBuffer loadedBuffer) {
+                if (released || requestedAudioObject != audioObject) {
+                    return;
+                }
+                if (loadedBuffer == null) {
+                    ref.handleStateChange(SoundEffectAudioPlayer.this, PlayerState.STOPPED);
+                    return;
+                }
+                if (pcmBuffer != loadedBuffer) {
+                    releaseVoices();
+                    pcmBuffer = loadedBuffer;
+                }
+                trigger();
+            }
+        });
+    }
+
+    @Override
+    public void play(AudioObject audioObject) {
+        this.released = false;
+
+        this.audioObject = audioObject;
+        this.playRequestedAt = SystemClock.elapsedRealtime();
+        this.initExoPlayer(0);
+    }
+
+    @Override
+    public void preload(AudioObject audioObject) {
+        // decode ahead so that the first play is served from memory
+        PcmCache.load(this.context, audioObject.getUrl(), new PcmBufferResponse() {
+            @Override
+            public void processFinish(PcmBuffer pcmBuffer) {}
+        });
+    }
+
+    @Override
+    public void playAll(ArrayList<AudioObject> audioObjects, int index) {
+        if (index >= 0 && index < audioObjects.size()) {
+            play(audioObjects.get(index));
+        }
+    }
+
+    @Override
+    public void next() {}
+
+    @Override
+    public void previous() {}
+
+    @Override
+    public void pause() {
+        if (!this.released) {
+            for (AudioTrack voice : voices) {
+                if (voice.getPlayState() == AudioTrack.PLAYSTATE_PLAYING) {
+                    voice.pause();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void resume() {
+        if (!this.released) {
+            for (AudioTrack voice : voices) {
+                if (voice.getPlayState() == AudioTrack.PLAYSTATE_PAUSED) {
+                    voice.play();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!this.released) {
+            for (AudioTrack voice : voices) {
+                if (voice.getPlayState() != AudioTrack.PLAYSTATE_STOPPED) {
+                    voice.stop();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        if (!this.released) {
+            this.initialized = false;
+            this.released = true;
+
+            this.audioObject = null;
+            this.pcmBuffer = null;
+            releaseVoices();
+            abandonAudioFocus();
+            ref.handleStateChange(this, PlayerState.RELEASED);
+        }
+    }
+
+    @Override
+    public void seekPosition(int position) {}
+
+    @Override
+    public void seekIndex(int index) {}
+
+    @Override
+    public void addItems(ArrayList<AudioObject> audioObjects, int index) {}
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {}
+
+    @Override
+    public void moveItem(int fromIndex, int toIndex) {}
+
+    @Override
+    public void replaceItem(int index, AudioObject audioObject) {}
+
+    @Override
+    public boolean isPlaying() {
+        for (AudioTrack voice : voices) {
+            if (!isVoiceFinished(voice) && voice.getPlayState() == AudioTrack.PLAYSTATE_PLAYING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isBackground() {
+        return true;
+    }
+
+    @Override
+    public boolean isPlayerInitialized() {
+        return this.initialized;
+    }
+
+    @Override
+    public boolean isPlayerReleased() {
+        return this.released;
+    }
+
+    @Override
+    public boolean isPlayerCompleted() {
+        return false;
+    }
+
+    @Override
+    public String getPlayerId() {
+        return this.playerId;
+    }
+
+    @Override
+    public long getDuration() {
+        if (!this.released && pcmBuffer != null) {
+            return pcmBuffer.getDurationMs();
+        } else {
+            return -1;
+        }
+    }
+
+    @Override
+    public long getCurrentPosition() {
+        if (!this.released && lastVoice != null) {
+            return Math.min(SystemClock.elapsedRealtime() - lastTriggeredAt, pcmBuffer.getDurationMs());
+        } else {
+            return -1;
+        }
+    }
+
+    @Override
+    public long getBufferedPosition() {
+        // decoded clips are fully in memory
+        return getDuration();
+    }
+
+    @Override
+    public int getCurrentPlayingAudioIndex() {
+        return 0;
+    }
+
+    @Override
+    public long getStartupLatency() {
+        return this.startupLatency;
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        // clips play from memory, there is no loading or rebuffering to report
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("startupLatencyMs", this.startupLatency);
+        metrics.put("timeToFirstFrameMs", this.startupLatency);
+        metrics.put("voices", voices.size());
+        return metrics;
+    }
+
+    @Override
+    public void resetMetrics() {
+        this.startupLatency = -1;
+    }
+
+    @Override
+    public void setPlayerAttributes(boolean repeatMode, boolean respectAudioFocus, PlayerMode playerMode, BufferConfig bufferConfig) {
+        this.respectAudioFocus = respectAudioFocus;
+        if (!respectAudioFocus) {
+            abandonAudioFocus();
+        }
+    }
+
+    @Override
+    public void setBufferConfig(BufferConfig bufferConfig) {}
+
+    @Override
+    public void setCacheBypass(boolean cacheBypass) {}
+
+    @Override
+    public void setLazyPlaylist(boolean lazyPlaylist, int lazyWindowSize) {}
+
+    @Override
+    public void setPrefetch(int prefetchCount, long prefetchBytes) {}
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void setVolume(float volume) {
+        if (!this.released && this.volume != volume) {
+            this.volume = volume;
+            for (AudioTrack voice : voices) {
+                voice.setStereoVolume(volume, volume);
+            }
+        }
+    }
+
+    @Override
+    public void setRepeatMode(boolean repeatMode) {}
+
+    public void setMaxVoices(int maxVoices) {
+        this.maxVoices = Math.max(maxVoices, 1);
+    }
+
+    // starts a free voice, or steals the oldest one when all voices are busy
+    private void trigger() {
+        if (respectAudioFocus && !requestAudioFocus()) {
+            return;
+        }
+        AudioTrack voice = null;
+        for (AudioTrack candidate : voices) {
+            if (isVoiceFinished(candidate)) {
+                voice = candidate;
+                break;
+            }
+        }
+        if (voice == null && voices.size() < maxVoices) {
+            voice = createVoice();
+            if (voice == null) {
+                return;
+            }
+            voices.add(voice);
+        } else {
+            if (voice == null) {
+                voice = voices.remove(0);
+                voices.add(voice);
+            }
+            voice.stop();
+            voice.reloadStaticData();
+        }
+        voice.play();
+        lastVoice = voice;
+        lastTriggeredAt = SystemClock.elapsedRealtime();
+        startupLatency = lastTriggeredAt - playRequestedAt;
+        if (hasAudioFocus) {
+            handler.removeCallbacks(abandonAudioFocus);
+            handler.postDelayed(abandonAudioFocus, pcmBuffer.getDurationMs());
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private AudioTrack createVoice() {
+        int channelConfig = pcmBuffer.getChannelCount() == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        byte[] data = pcmBuffer.getData();
+        try {
+            AudioTrack voice;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                voice = new AudioTrack.Builder()
+                        .setAudioAttributes(buildAudioAttributes())
+                        .setAudioFormat(new AudioFormat.Builder()
+                                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                                .setSampleRate(pcmBuffer.getSampleRate())
+                                .setChannelMask(channelConfig)
+                                .build())
+                        .setTransferMode(AudioTrack.MODE_STATIC)
+                        .setBufferSizeInBytes(data.length)
+                        .build();
+            } else {
+                voice = new AudioTrack(AudioManager.STREAM_MUSIC, pcmBuffer.getSampleRate(), channelConfig,
+                        AudioFormat.ENCODING_PCM_16BIT, data.length, AudioTrack.MODE_STATIC);
+            }
+            if (voice.getState() == AudioTrack.STATE_UNINITIALIZED) {
+                voice.release();
+                return null;
+            }
+            voice.write(data, 0, data.length);
+            voice.setStereoVolume(volume, volume);
+            return voice;
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            Log.e("MBExoPlayerPlugin", "Failed creating sound effect voice!", e);
+            return null;
+        }
+    }
+
+    // game sounds share the media volume but are not treated as music
+    private static AudioAttributes buildAudioAttributes() {
+        return new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_GAME)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean requestAudioFocus() {
+        if (hasAudioFocus) {
+            return true;
+        }
+        int result;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            if (audioFocusRequest == null) {
+                audioFocusRequest = new AudioFocusRequest.Builder(AudioManager.AUDIOFOCUS_GAIN_TRANSIENT_MAY_DUCK)
+                        .setAudioAttributes(buildAudioAttributes())
+                        .setOnAudioFocusChangeListener(audioFocusChangeListener, handler)
+                        .build();
+            }
+            result = audioManager.requestAudioFocus(audioFocusRequest);
+        } else {
+            result = audioManager.requestAudioFocus(audioFocusChangeListener, AudioManager.STREAM_MUSIC,
+                    AudioManager.AUDIOFOCUS_GAIN_TRANSIENT_MAY_DUCK);
+        }
+        hasAudioFocus = result == AudioManager.AUDIOFOCUS_REQUEST_GRANTED;
+        return hasAudioFocus;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void abandonAudioFocus() {
+        if (handler != null) {
+            handler.removeCallbacks(abandonAudioFocus);
+        }
+        if (!hasAudioFocus) {
+            return;
+        }
+        hasAudioFocus = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            audioManager.abandonAudioFocusRequest(audioFocusRequest);
+        } else {
+            audioManager.abandonAudioFocus(audioFocusChangeListener);
+        }
+    }
+
+    private boolean isVoiceFinished(AudioTrack voice) {
+        return voice.getPlayState() == AudioTrack.PLAYSTATE_STOPPED
+                || voice.getPlaybackHeadPosition() >= pcmBuffer.getFrameCount();
+    }
+
+    private void releaseVoices() {
+        for (AudioTrack voice : voices) {
+            voice.release();
+        }
+        voices.clear();
+        lastVoice = null;
+    }
+}
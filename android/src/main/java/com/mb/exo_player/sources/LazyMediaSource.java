@@ -0,0 +1,68 @@
+package com.mb.exo_player.sources;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.source.CompositeMediaSource;
+import com.google.android.exoplayer2.source.MediaPeriod;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.mb.exo_player.interfaces.MediaSourceProvider;
+import com.mb.exo_player.models.AudioObject;
+
+/**
+ * Lightweight playlist placeholder which only holds its {@link AudioObject}.
+ *
+ * The real media source is created when the player prepares this item, which with a lazily
+ * preparing ConcatenatingMediaSource only happens once playback gets close to it.
+ */
+public class LazyMediaSource extends CompositeMediaSource<Void> {
+    private final AudioObject audioObject;
+    private final MediaSourceProvider mediaSourceProvider;
+
+    @Nullable
+    private volatile MediaSource mediaSource;
+
+    public LazyMediaSource(AudioObject audioObject, MediaSourceProvider mediaSourceProvider) {
+        this.audioObject = audioObject;
+        this.mediaSourceProvider = mediaSourceProvider;
+    }
+
+    public AudioObject getAudioObject() {
+        return audioObject;
+    }
+
+    public boolean isMaterialized() {
+        return mediaSource != null;
+    }
+
+    @Override
+    public void prepareSourceInternal(@Nullable TransferListener mediaTransferListener) {
+        super.prepareSourceInternal(mediaTransferListener);
+        MediaSource mediaSource = mediaSourceProvider.createMediaSource(audioObject);
+        this.mediaSource = mediaSource;
+        prepareChildSource(null, mediaSource);
+    }
+
+    @Override
+    protected void onChildSourceInfoRefreshed(Void id, MediaSource mediaSource, Timeline timeline, @Nullable Object manifest) {
+        refreshSourceInfo(timeline, manifest);
+    }
+
+    @Override
+    public MediaPeriod createPeriod(MediaPeriodId id, Allocator allocator, long startPositionUs) {
+        return mediaSource.createPeriod(id, allocator, startPositionUs);
+    }
+
+    @Override
+    public void releasePeriod(MediaPeriod mediaPeriod) {
+        mediaSource.releasePeriod(mediaPeriod);
+    }
+
+    @Override
+    public void releaseSourceInternal() {
+        super.releaseSourceInternal();
+        mediaSource = null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.mb.exo_player.sources;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.ProgressiveMediaSource;
+import com.google.android.exoplayer2.source.dash.DashMediaSource;
+import com.google.android.exoplayer2.source.hls.HlsMediaSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.util.Util;
+import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.network.RetryPolicy;
+
+/**
+ * Builds the media source matching the source type of an item.
+ *
+ * HLS and DASH items let the track selector switch variants on the shared bandwidth estimate,
+ * everything else is played as a single progressive file.
+ */
+public class MediaSources {
+
+    private MediaSources() {}
+
+    // explicit source type first, then the mime type hint, then the url extension
+    public static int getContentType(AudioObject audioObject) {
+        switch (audioObject.getSourceType()) {
+            case PROGRESSIVE:
+                return C.TYPE_OTHER;
+            case HLS:
+                return C.TYPE_HLS;
+            case DASH:
+                return C.TYPE_DASH;
+            default:
+                break;
+        }
+        final String mimeType = audioObject.getMimeType();
+        if (mimeType != null) {
+            switch (Util.toLowerInvariant(mimeType)) {
+                case "application/x-mpegurl":
+                case "application/vnd.apple.mpegurl":
+                    return C.TYPE_HLS;
+                case "application/dash+xml":
+                    return C.TYPE_DASH;
+                default:
+                    return C.TYPE_OTHER;
+            }
+        }
+        final int contentType = Util.inferContentType(Uri.parse(audioObject.getUrl()));
+        // smooth streaming is not used for audio, such urls are tried as progressive
+        return contentType == C.TYPE_SS ? C.TYPE_OTHER : contentType;
+    }
+
+    public static boolean isProgressive(AudioObject audioObject) {
+        return getContentType(audioObject) == C.TYPE_OTHER;
+    }
+
+    public static MediaSource build(AudioObject audioObject, DataSource.Factory dataSourceFactory) {
+        final Uri uri = Uri.parse(audioObject.getPlaybackUrl());
+        switch (getContentType(audioObject)) {
+            case C.TYPE_HLS:
+                // audio-only playlists usually declare their codecs, no need to load a chunk first
+                return new HlsMediaSource.Factory(dataSourceFactory)
+                        .setAllowChunklessPreparation(true)
+                        .setLoadErrorHandlingPolicy(RetryPolicy.get())
+                        .createMediaSource(uri);
+            case C.TYPE_DASH:
+                return new DashMediaSource.Factory(dataSourceFactory)
+                        .setLoadErrorHandlingPolicy(RetryPolicy.get())
+                        .createMediaSource(uri);
+            default:
+                return new ProgressiveMediaSource.Factory(dataSourceFactory)
+                        .setLoadErrorHandlingPolicy(RetryPolicy.get())
+                        .createMediaSource(uri);
+        }
+    }
+}
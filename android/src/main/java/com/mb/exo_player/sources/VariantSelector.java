@@ -0,0 +1,67 @@
+package com.mb.exo_player.sources;
+
+import android.content.Context;
+
+import com.mb.exo_player.download.OfflineDownloads;
+import com.mb.exo_player.models.AudioObject;
+import com.mb.exo_player.models.AudioVariant;
+import com.mb.exo_player.players.PlayerComponents;
+
+import java.util.List;
+
+/**
+ * Picks the variant of an item for the current estimate of the shared bandwidth meter.
+ *
+ * Runs each time an item is loaded, so a playing item keeps its variant while the following
+ * items of a playlist follow the estimate. Downloaded copies are looked up once by
+ * {@link #resolveDownload} when the item is built, not on every load. Without a measurement yet the meter starts from its
+ * initial estimate for the network type, which keeps slow connections on a low bitrate.
+ */
+public class VariantSelector {
+    // like ExoPlayer's adaptive track selection, leaves headroom for estimate fluctuations
+    private static final float BANDWIDTH_FRACTION = 0.7f;
+
+    private VariantSelector() {}
+
+    public static String select(Context context, AudioObject audioObject) {
+        final List<AudioVariant> variants = audioObject.getVariants();
+        if (variants.isEmpty()) {
+            return audioObject.getUrl();
+        }
+        // downloaded copies play offline whatever the connection
+        if (audioObject.getDownloadedUrl() != null) {
+            return audioObject.getDownloadedUrl();
+        }
+        return selectForBitrate(variants, PlayerComponents.getBandwidthMeter(context).getBitrateEstimate()).getUrl();
+    }
+
+    static AudioVariant selectForBitrate(List<AudioVariant> variants, long bitrateEstimate) {
+        final long allowedBitrate = (long) (bitrateEstimate * BANDWIDTH_FRACTION);
+        // variants are sorted by bitrate, the lowest one is used when none fits
+        AudioVariant selected = variants.get(0);
+        for (AudioVariant variant : variants) {
+            if (variant.getBitrate() <= allowedBitrate) {
+                selected = variant;
+            }
+        }
+        return selected;
+    }
+
+    // has to be called from the playback thread before the item is handed to a player
+    public static void resolveDownload(Context context, AudioObject audioObject) {
+        // items without variants always play their url, the download cache serves it if present
+        if (audioObject.getVariants().isEmpty()) {
+            return;
+        }
+        if (OfflineDownloads.isDownloaded(context, audioObject.getUrl())) {
+            audioObject.setDownloadedUrl(audioObject.getUrl());
+            return;
+        }
+        for (AudioVariant variant : audioObject.getVariants()) {
+            if (OfflineDownloads.isDownloaded(context, variant.getUrl())) {
+                audioObject.setDownloadedUrl(variant.getUrl());
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.mb.exo_player.codec;
+
+import com.mb.exo_player.enums.SourceType;
+import com.mb.exo_player.models.AudioObject;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PlaylistCodecTest {
+
+    // writes the header and string table, items follow
+    private static DataOutputStream header(ByteArrayOutputStream bytes, int version, String... strings) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(version);
+        out.writeInt(strings.length);
+        for (String string : strings) {
+            byte[] utf8 = string.getBytes("UTF-8");
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+        return out;
+    }
+
+    private static void writeItemV1(DataOutputStream out, int url, int title, boolean isLocal) throws IOException {
+        out.writeInt(url);
+        out.writeInt(-1);
+        out.writeInt(title);
+        out.writeInt(-1);
+        out.writeInt(-1);
+        out.writeByte(isLocal ? 1 : 0);
+        out.writeByte(0);
+        out.writeByte(0);
+    }
+
+    @Test
+    public void decodesVersion1() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = header(bytes, 1, "https://example.com/1.mp3", "One");
+        out.writeInt(2);
+        writeItemV1(out, 0, 1, true);
+        writeItemV1(out, 0, -1, false);
+
+        ArrayList<AudioObject> audioObjects = PlaylistCodec.decode(bytes.toByteArray(), false);
+        assertEquals(2, audioObjects.size());
+        assertEquals("https://example.com/1.mp3", audioObjects.get(0).getUrl());
+        assertEquals("One", audioObjects.get(0).getTitle());
+        assertTrue(audioObjects.get(0).getIsLocal());
+        assertNull(audioObjects.get(1).getTitle());
+        assertFalse(audioObjects.get(1).getIsLocal());
+        assertEquals(SourceType.AUTO, audioObjects.get(0).getSourceType());
+        assertTrue(audioObjects.get(0).getVariants().isEmpty());
+    }
+
+    @Test
+    public void backgroundItemsOnlyKeepTheUrl() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = header(bytes, 1, "https://example.com/1.mp3", "One");
+        out.writeInt(1);
+        writeItemV1(out, 0, 1, true);
+
+        AudioObject audioObject = PlaylistCodec.decode(bytes.toByteArray(), true).get(0);
+        assertEquals("https://example.com/1.mp3", audioObject.getUrl());
+        assertNull(audioObject.getTitle());
+    }
+
+    @Test
+    public void decodesVersion2SourceType() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = header(bytes, 2, "https://example.com/live", "application/x-mpegURL");
+        out.writeInt(1);
+        writeItemV1(out, 0, -1, false);
+        out.writeInt(1);
+        out.writeByte(SourceType.HLS.ordinal());
+
+        AudioObject audioObject = PlaylistCodec.decode(bytes.toByteArray(), true).get(0);
+        assertEquals("application/x-mpegURL", audioObject.getMimeType());
+        assertEquals(SourceType.HLS, audioObject.getSourceType());
+    }
+
+    @Test
+    public void decodesVersion3VariantsSortedByBitrate() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = header(bytes, 3, "https://example.com/2.mp3", "https://example.com/2_64.mp3");
+        out.writeInt(1);
+        writeItemV1(out, 0, -1, false);
+        out.writeInt(-1);
+        out.writeByte(SourceType.PROGRESSIVE.ordinal());
+        out.writeInt(2);
+        out.writeInt(0);
+        out.writeInt(128000);
+        out.writeInt(1);
+        out.writeInt(64000);
+
+        AudioObject audioObject = PlaylistCodec.decode(bytes.toByteArray(), true).get(0);
+        assertNull(audioObject.getMimeType());
+        assertEquals(SourceType.PROGRESSIVE, audioObject.getSourceType());
+        assertEquals(2, audioObject.getVariants().size());
+        assertEquals("https://example.com/2_64.mp3", audioObject.getVariants().get(0).getUrl());
+        assertEquals(64000, audioObject.getVariants().get(0).getBitrate());
+        assertEquals(128000, audioObject.getVariants().get(1).getBitrate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownVersion() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = header(bytes, PlaylistCodec.VERSION + 1);
+        out.writeInt(0);
+        PlaylistCodec.decode(bytes.toByteArray(), true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedPayload() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = header(bytes, 3, "https://example.com/1.mp3");
+        out.writeInt(1);
+        out.writeInt(0);
+        PlaylistCodec.decode(bytes.toByteArray(), true);
+    }
+}
@@ -0,0 +1,42 @@
+package com.mb.exo_player.models;
+
+import com.google.android.exoplayer2.C;
+import com.mb.exo_player.enums.BufferProfile;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class BufferConfigTest {
+
+    @Test
+    public void profilesDifferFromDefault() {
+        for (BufferProfile profile : new BufferProfile[] {BufferProfile.LOW_LATENCY, BufferProfile.LOW_MEMORY, BufferProfile.HIGH_RESILIENCE}) {
+            BufferConfig config = BufferConfig.forProfile(profile);
+            assertEquals(profile, config.getProfile());
+            assertNotEquals(BufferConfig.DEFAULT, config);
+        }
+    }
+
+    @Test
+    public void customFallsBackToDefault() {
+        BufferConfig config = BufferConfig.forProfile(BufferProfile.CUSTOM);
+        assertEquals(BufferProfile.DEFAULT, config.getProfile());
+        assertEquals(BufferConfig.DEFAULT, config);
+    }
+
+    @Test
+    public void equalValuesAreEqualWhateverTheProfile() {
+        BufferConfig custom = new BufferConfig(BufferProfile.CUSTOM, 5000, 15000, 500, 1000, C.LENGTH_UNSET);
+        BufferConfig lowLatency = BufferConfig.forProfile(BufferProfile.LOW_LATENCY);
+        assertEquals(lowLatency, custom);
+        assertEquals(lowLatency.hashCode(), custom.hashCode());
+    }
+
+    @Test
+    public void durationsAreClampedToMinBuffer() {
+        BufferConfig config = new BufferConfig(BufferProfile.CUSTOM, 5000, 1000, 9000, 9000, C.LENGTH_UNSET);
+        assertEquals(new BufferConfig(BufferProfile.CUSTOM, 5000, 5000, 5000, 5000, C.LENGTH_UNSET), config);
+    }
+}
@@ -0,0 +1,61 @@
+package com.mb.exo_player.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PositionUpdateConfigTest {
+
+    @Test
+    public void intervalIsClampedToMinimum() {
+        PositionUpdateConfig config = new PositionUpdateConfig();
+        config.setIntervalMs(1);
+        assertEquals(PositionUpdateConfig.MIN_INTERVAL_MS, config.getIntervalMs());
+    }
+
+    @Test
+    public void fixedIntervalIgnoresBackgroundAndListener() {
+        PositionUpdateConfig config = new PositionUpdateConfig();
+        config.setListenerActive(false);
+        assertEquals(PositionUpdateConfig.DEFAULT_INTERVAL_MS, config.getEffectiveIntervalMs(true));
+    }
+
+    @Test
+    public void adaptiveSlowsDownInBackgroundOrWithoutListener() {
+        PositionUpdateConfig config = new PositionUpdateConfig();
+        config.setAdaptive(true);
+        assertEquals(PositionUpdateConfig.DEFAULT_INTERVAL_MS, config.getEffectiveIntervalMs(false));
+        assertEquals(PositionUpdateConfig.IDLE_INTERVAL_MS, config.getEffectiveIntervalMs(true));
+        config.setListenerActive(false);
+        assertEquals(PositionUpdateConfig.IDLE_INTERVAL_MS, config.getEffectiveIntervalMs(false));
+    }
+
+    @Test
+    public void adaptiveKeepsLongerIntervals() {
+        PositionUpdateConfig config = new PositionUpdateConfig();
+        config.setAdaptive(true);
+        config.setIntervalMs(5000);
+        assertEquals(5000, config.getEffectiveIntervalMs(true));
+    }
+
+    @Test
+    public void consumeUpdateSchedulesTheNextOne() {
+        PositionUpdateConfig config = new PositionUpdateConfig();
+        config.setAdaptive(true);
+        assertTrue(config.consumeUpdate(1000, false));
+        assertEquals(1000 + PositionUpdateConfig.DEFAULT_INTERVAL_MS, config.getNextUpdateAt());
+        assertFalse(config.consumeUpdate(1100, false));
+        assertTrue(config.consumeUpdate(1200, true));
+        assertEquals(1200 + PositionUpdateConfig.IDLE_INTERVAL_MS, config.getNextUpdateAt());
+    }
+
+    @Test
+    public void changingTheModeMakesTheNextUpdateDue() {
+        PositionUpdateConfig config = new PositionUpdateConfig();
+        assertTrue(config.consumeUpdate(1000, false));
+        config.setListenerActive(false);
+        assertTrue(config.consumeUpdate(1001, false));
+    }
+}
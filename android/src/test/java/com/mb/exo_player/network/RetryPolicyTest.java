@@ -0,0 +1,88 @@
+package com.mb.exo_player.network;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.ParserException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSource;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+    private final RetryPolicy retryPolicy = new RetryPolicy(3, 2, 1000, 8000, false);
+
+    private static IOException responseCode(int responseCode) {
+        return new HttpDataSource.InvalidResponseCodeException(responseCode,
+                Collections.<String, List<String>>emptyMap(), new DataSpec((Uri) null));
+    }
+
+    @Test
+    public void retriesTransientErrors() {
+        assertTrue(retryPolicy.isRetryable(new IOException("connection reset")));
+        assertTrue(retryPolicy.isRetryable(responseCode(500)));
+        assertTrue(retryPolicy.isRetryable(responseCode(503)));
+        assertTrue(retryPolicy.isRetryable(responseCode(408)));
+        assertTrue(retryPolicy.isRetryable(responseCode(429)));
+    }
+
+    @Test
+    public void doesNotRetryPermanentErrors() {
+        assertFalse(retryPolicy.isRetryable(new ParserException()));
+        assertFalse(retryPolicy.isRetryable(new FileNotFoundException()));
+        assertFalse(retryPolicy.isRetryable(responseCode(404)));
+        assertFalse(retryPolicy.isRetryable(responseCode(403)));
+    }
+
+    @Test
+    public void doesNotRetryMissingLocalFiles() {
+        assertFalse(retryPolicy.isRetryable(new FileDataSource.FileDataSourceException(new IOException())));
+        assertFalse(retryPolicy.isRetryable(new FileDataSource.FileDataSourceException(new FileNotFoundException())));
+        assertFalse(retryPolicy.isRetryable(new IOException(new FileNotFoundException())));
+    }
+
+    @Test
+    public void retriesClientErrorsWhenEnabled() {
+        RetryPolicy clientErrors = new RetryPolicy(3, 2, 1000, 8000, true);
+        assertTrue(clientErrors.isRetryable(responseCode(404)));
+        assertFalse(clientErrors.isRetryable(new FileNotFoundException()));
+    }
+
+    @Test
+    public void backoffDoublesUpToMaxDelay() {
+        assertEquals(1000, retryPolicy.getBackoffDelayMs(1));
+        assertEquals(2000, retryPolicy.getBackoffDelayMs(2));
+        assertEquals(4000, retryPolicy.getBackoffDelayMs(3));
+        assertEquals(8000, retryPolicy.getBackoffDelayMs(4));
+        assertEquals(8000, retryPolicy.getBackoffDelayMs(10));
+    }
+
+    @Test
+    public void loadRetriesStopAfterMaxLoadRetries() {
+        IOException exception = new IOException();
+        assertEquals(1000, retryPolicy.getRetryDelayMsFor(C.DATA_TYPE_MEDIA, 0, exception, 1));
+        assertEquals(4000, retryPolicy.getRetryDelayMsFor(C.DATA_TYPE_MEDIA, 0, exception, 3));
+        assertEquals(C.TIME_UNSET, retryPolicy.getRetryDelayMsFor(C.DATA_TYPE_MEDIA, 0, exception, 4));
+        assertEquals(C.TIME_UNSET, retryPolicy.getRetryDelayMsFor(C.DATA_TYPE_MEDIA, 0, new ParserException(), 1));
+    }
+
+    @Test
+    public void playerRetriesStopAfterMaxPlayerRetries() {
+        ExoPlaybackException error = ExoPlaybackException.createForSource(new IOException());
+        assertTrue(retryPolicy.shouldRetry(error, 0));
+        assertTrue(retryPolicy.shouldRetry(error, 1));
+        assertFalse(retryPolicy.shouldRetry(error, 2));
+        assertFalse(retryPolicy.shouldRetry(ExoPlaybackException.createForSource(new ParserException()), 0));
+    }
+}
@@ -0,0 +1,34 @@
+package com.mb.exo_player.sources;
+
+import com.mb.exo_player.models.AudioVariant;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class VariantSelectorTest {
+    private final List<AudioVariant> variants = Arrays.asList(
+            new AudioVariant("https://example.com/32.mp3", 32000),
+            new AudioVariant("https://example.com/64.mp3", 64000),
+            new AudioVariant("https://example.com/128.mp3", 128000));
+
+    @Test
+    public void leavesHeadroomBelowTheEstimate() {
+        // 70% of 100 kbps allows 70 kbps
+        assertEquals(64000, VariantSelector.selectForBitrate(variants, 100000).getBitrate());
+        assertEquals(64000, VariantSelector.selectForBitrate(variants, 180000).getBitrate());
+    }
+
+    @Test
+    public void picksTheLowestWhenNoneFits() {
+        assertEquals(32000, VariantSelector.selectForBitrate(variants, 10000).getBitrate());
+    }
+
+    @Test
+    public void picksTheHighestOnFastConnections() {
+        assertEquals(128000, VariantSelector.selectForBitrate(variants, 10000000).getBitrate());
+    }
+}
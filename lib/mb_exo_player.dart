@@ -1,4 +1,6 @@
 import 'dart:async';
+import 'dart:convert' show utf8;
+import 'dart:typed_data';
 
 import 'package:flutter/services.dart';
 import 'dart:io' show Platform;
@@ -39,10 +41,281 @@ enum Result {
   ERROR,
 }
 
+/// How a url is played. [AUTO] detects HLS and DASH from the mime type or
+/// the url extension, anything else plays as a single progressive file.
+enum SourceType {
+  AUTO,
+  PROGRESSIVE,
+  HLS,
+  DASH,
+}
+
+/// Buffering presets of a player's load control, see [BufferConfig].
+enum BufferProfile {
+  DEFAULT,
+  LOW_LATENCY,
+  LOW_MEMORY,
+  HIGH_RESILIENCE,
+  CUSTOM,
+}
+
+/// How much audio a player buffers ahead.
+///
+/// Changing the config of a playing player recreates its ExoPlayer instance
+/// on that play call.
+class BufferConfig {
+  final BufferProfile profile;
+  final int minBufferMs;
+  final int maxBufferMs;
+  final int bufferForPlaybackMs;
+  final int bufferForPlaybackAfterRebufferMs;
+  final int targetBufferBytes;
+
+  const BufferConfig(this.profile)
+      : minBufferMs = null,
+        maxBufferMs = null,
+        bufferForPlaybackMs = null,
+        bufferForPlaybackAfterRebufferMs = null,
+        targetBufferBytes = null;
+
+  /// Values left null keep the ExoPlayer defaults.
+  const BufferConfig.custom({
+    this.minBufferMs,
+    this.maxBufferMs,
+    this.bufferForPlaybackMs,
+    this.bufferForPlaybackAfterRebufferMs,
+    this.targetBufferBytes,
+  }) : profile = BufferProfile.CUSTOM;
+
+  void _addArguments(Map<String, dynamic> arguments) {
+    arguments['bufferProfile'] = profile.index;
+    arguments['minBufferMs'] = minBufferMs;
+    arguments['maxBufferMs'] = maxBufferMs;
+    arguments['bufferForPlaybackMs'] = bufferForPlaybackMs;
+    arguments['bufferForPlaybackAfterRebufferMs'] = bufferForPlaybackAfterRebufferMs;
+    arguments['targetBufferBytes'] = targetBufferBytes;
+  }
+}
+
+/// One encoding of an audio, [bitrate] in bits per second.
+class AudioVariant {
+  final String url;
+  final int bitrate;
+
+  const AudioVariant(this.url, this.bitrate);
+}
+
+/// A single audio of a playlist.
+///
+/// The notification fields are only used by [PlayerMode.FOREGROUND] players.
+class PlaylistItem {
+  final String url;
+  final String smallIconFileName;
+  final String title;
+  final String subTitle;
+  final String largeIconUrl;
+  final bool isLocal;
+  final int notificationActionMode;
+  final int notificationActionCallbackMode;
+  final SourceType sourceType;
+
+  /// e.g. application/x-mpegURL, used when [sourceType] is [SourceType.AUTO].
+  final String mimeType;
+
+  /// Alternative files of this item. The player loads the one fitting the
+  /// measured bandwidth, [url] identifies the item and is the one downloaded
+  /// for offline use.
+  final List<AudioVariant> variants;
+
+  const PlaylistItem(
+    this.url, {
+    this.smallIconFileName,
+    this.title,
+    this.subTitle,
+    this.largeIconUrl,
+    this.isLocal = false,
+    this.notificationActionMode = 0,
+    this.notificationActionCallbackMode = 0,
+    this.sourceType = SourceType.AUTO,
+    this.mimeType,
+    this.variants,
+  });
+}
+
+/// A playback error reported by the native player.
+///
+/// With [willRetry] the player retries in place after [retryDelay] and keeps
+/// its state, otherwise it is stopped and [resume] continues where it failed.
+class PlayerError {
+  /// source, renderer or unexpected.
+  final String errorType;
+  final String cause;
+  final String message;
+  final int responseCode;
+  final int retryCount;
+  final bool willRetry;
+  final Duration retryDelay;
+
+  PlayerError._fromMap(Map<dynamic, dynamic> map)
+      : errorType = map['errorType'],
+        cause = map['cause'],
+        message = map['message'],
+        responseCode = map['responseCode'],
+        retryCount = map['retryCount'],
+        willRetry = map['willRetry'],
+        retryDelay = Duration(milliseconds: map['retryDelayMs']);
+
+  @override
+  String toString() => '$cause: $message';
+}
+
+enum DownloadState {
+  QUEUED,
+  STOPPED,
+  DOWNLOADING,
+  COMPLETED,
+  FAILED,
+  REMOVING,
+  RESTARTING,
+}
+
+/// Progress of an offline download, see [AudioPlayer.downloadPlaylist].
+class DownloadStatus {
+  static const _stateMap = {
+    0: DownloadState.QUEUED,
+    1: DownloadState.STOPPED,
+    2: DownloadState.DOWNLOADING,
+    3: DownloadState.COMPLETED,
+    4: DownloadState.FAILED,
+    5: DownloadState.REMOVING,
+    7: DownloadState.RESTARTING,
+  };
+
+  final String url;
+  final DownloadState state;
+  final int bytesDownloaded;
+
+  /// -1 while unknown.
+  final int contentLength;
+  final double percentDownloaded;
+  final bool removed;
+
+  DownloadStatus._fromMap(Map<dynamic, dynamic> map)
+      : url = map['url'],
+        state = _stateMap[map['state']],
+        bytesDownloaded = map['bytesDownloaded'],
+        contentLength = map['contentLength'],
+        percentDownloaded = map['percentDownloaded'],
+        removed = map['removed'] ?? false;
+}
+
+/// Packs playlist items into one buffer with a shared string table, see
+/// PlaylistCodec on the Android side for the layout.
+Uint8List _encodePlaylist(List<PlaylistItem> items) {
+  const int version = 3;
+  final Map<String, int> stringIndexes = {};
+  final List<List<int>> strings = [];
+  int stringBytes = 0;
+
+  int indexOf(String value) {
+    if (value == null) {
+      return -1;
+    }
+    return stringIndexes.putIfAbsent(value, () {
+      final List<int> bytes = utf8.encode(value);
+      strings.add(bytes);
+      stringBytes += 4 + bytes.length;
+      return strings.length - 1;
+    });
+  }
+
+  final List<int> indexes = List<int>(items.length * 6);
+  for (int i = 0; i < items.length; i++) {
+    final PlaylistItem item = items[i];
+    indexes[i * 6] = indexOf(item.url);
+    indexes[i * 6 + 1] = indexOf(item.smallIconFileName);
+    indexes[i * 6 + 2] = indexOf(item.title);
+    indexes[i * 6 + 3] = indexOf(item.subTitle);
+    indexes[i * 6 + 4] = indexOf(item.largeIconUrl);
+    indexes[i * 6 + 5] = indexOf(item.mimeType);
+  }
+  final List<List<int>> variantIndexes = List<List<int>>(items.length);
+  int variantCount = 0;
+  for (int i = 0; i < items.length; i++) {
+    final List<AudioVariant> variants = items[i].variants ?? const [];
+    variantIndexes[i] = variants.map((variant) => indexOf(variant.url)).toList();
+    variantCount += variants.length;
+  }
+
+  final Uint8List bytes =
+      Uint8List(12 + stringBytes + items.length * 32 + variantCount * 8);
+  final ByteData data = ByteData.view(bytes.buffer);
+  int offset = 0;
+  data.setInt32(offset, version);
+  offset += 4;
+  data.setInt32(offset, strings.length);
+  offset += 4;
+  for (final List<int> string in strings) {
+    data.setInt32(offset, string.length);
+    offset += 4;
+    bytes.setRange(offset, offset + string.length, string);
+    offset += string.length;
+  }
+  data.setInt32(offset, items.length);
+  offset += 4;
+  for (int i = 0; i < items.length; i++) {
+    for (int j = 0; j < 5; j++) {
+      data.setInt32(offset, indexes[i * 6 + j]);
+      offset += 4;
+    }
+    final PlaylistItem item = items[i];
+    data.setInt8(offset++, (item.isLocal ?? false) ? 1 : 0);
+    data.setInt8(offset++, item.notificationActionMode ?? 0);
+    data.setInt8(offset++, item.notificationActionCallbackMode ?? 0);
+    data.setInt32(offset, indexes[i * 6 + 5]);
+    offset += 4;
+    data.setInt8(offset++, (item.sourceType ?? SourceType.AUTO).index);
+    data.setInt32(offset, variantIndexes[i].length);
+    offset += 4;
+    for (int j = 0; j < variantIndexes[i].length; j++) {
+      data.setInt32(offset, variantIndexes[i][j]);
+      offset += 4;
+      data.setInt32(offset, item.variants[j].bitrate);
+      offset += 4;
+    }
+  }
+  return bytes;
+}
+
 class AudioPlayer {
   static const MethodChannel _channel =
       const MethodChannel('mb_exo_player');
 
+  /// Carries player events so that they don't queue behind command calls on
+  /// [_channel]. Events are encoded as `[code, playerId, value]`.
+  static const EventChannel _eventChannel =
+      const EventChannel('mb_exo_player/events');
+
+  static const _eventMethods = {
+    0: 'audio.onStateChanged',
+    1: 'audio.onDurationChanged',
+    2: 'audio.onCurrentPositionChanged',
+    3: 'audio.onCurrentPlayingAudioIndexChange',
+    4: 'audio.onAudioSessionIdChange',
+    5: 'audio.onNotificationActionCallback',
+    6: 'audio.onError',
+    7: 'audio.onUpdates',
+    8: 'audio.onDownloadChanged',
+  };
+
+  static final StreamController<DownloadStatus> _downloadController =
+  StreamController<DownloadStatus>.broadcast();
+
+  /// Stream of offline download progress and state changes of all players.
+  static Stream<DownloadStatus> get onDownloadChanged => _downloadController.stream;
+
+  static StreamSubscription<dynamic> _eventSubscription;
+
   static bool logEnabled = false;
   static final players = Map<String, AudioPlayer>();
   static final playerId = '123456';
@@ -69,8 +342,7 @@ class AudioPlayer {
   final StreamController<PlayerState> _playerStateController =
   StreamController<PlayerState>.broadcast();
 
-  final StreamController<Duration> _positionController =
-  StreamController<Duration>.broadcast();
+  StreamController<Duration> _positionController;
 
   final StreamController<Duration> _durationController =
   StreamController<Duration>.broadcast();
@@ -81,9 +353,15 @@ class AudioPlayer {
   final StreamController<String> _errorController =
   StreamController<String>.broadcast();
 
+  final StreamController<PlayerError> _playerErrorController =
+  StreamController<PlayerError>.broadcast();
+
   final StreamController<int> _currentPlayingIndexController =
   StreamController<int>.broadcast();
 
+  final StreamController<Duration> _bufferedPositionController =
+  StreamController<Duration>.broadcast();
+
   /// Stream of changes on player playerState.
   ///
   /// Events are sent every time the state of the audioplayer is changed
@@ -117,12 +395,21 @@ class AudioPlayer {
   Stream<String> get onPlayerError =>
       _errorController.stream; //! TODO handle error stream
 
+  /// Stream of player errors with their cause and retry state.
+  Stream<PlayerError> get onError => _playerErrorController.stream;
+
   /// Stream of current playing index.
   ///
   /// Events are sent when current index of a player is being changed.
   Stream<int> get onCurrentAudioIndexChanged =>
       _currentPlayingIndexController.stream;
 
+  /// Stream of changes on buffered position.
+  ///
+  /// Only fires while batched updates are enabled, see [setBatchedUpdates].
+  Stream<Duration> get onBufferedPositionChanged =>
+      _bufferedPositionController.stream;
+
   PlayerState _audioPlayerState;
 
   PlayerState get state => _audioPlayerState;
@@ -142,12 +429,19 @@ class AudioPlayer {
   /// Initializes AudioPlayer
   ///
   AudioPlayer() {
+    // lets adaptive position updates speed up only while someone listens
+    _positionController = StreamController<Duration>.broadcast(
+      onListen: () => _setPositionListenerActive(true),
+      onCancel: () => _setPositionListenerActive(false),
+    );
     if(Platform.isAndroid) {
       print('Android device code initialization');
       _playerState = PlayerState.RELEASED;
   //    _playerId = _uuid.v4();
       players['123456'] = this;
       _channel.setMethodCallHandler(platformCallHandler);
+      _eventSubscription ??=
+          _eventChannel.receiveBroadcastStream().listen(_handleEvent);
     } else if(Platform.isIOS) {
       print('ios device code initialization');
       _channel.setMethodCallHandler(_audioPlayerStateChange);
@@ -185,12 +479,27 @@ class AudioPlayer {
   ///
   /// If [PlayerMode] is set to [PlayerMode.FOREGROUND], then you also need to pass:
   /// [audioNotification] for providing the foreground notification.
+  ///
+  /// Network audio is stored in a shared disk cache, [cacheMaxBytes] and
+  /// [cacheDirectory] configure it before its first use and [cacheBypass]
+  /// streams this player without the cache. [bufferConfig] picks how much
+  /// audio is buffered ahead, null keeps the player's current config.
+  ///
+  /// With [variants] the player loads the variant fitting the measured
+  /// bandwidth instead of [url].
   Future<Result> play(
       String url, {
         bool repeatMode = false,
         bool respectAudioFocus = false,
         Duration position = const Duration(milliseconds: 0),
         PlayerMode playerMode = PlayerMode.BACKGROUND,
+        int cacheMaxBytes,
+        String cacheDirectory,
+        bool cacheBypass = false,
+        BufferConfig bufferConfig,
+        SourceType sourceType = SourceType.AUTO,
+        String mimeType,
+        List<AudioVariant> variants,
 //        AudioNotification audioNotification,
       }) async {
     playerMode ??= PlayerMode.BACKGROUND;
@@ -221,12 +530,19 @@ class AudioPlayer {
       isBackground = false;
     }
 
-    return ResultMap[await _invokeMethod('play', {
+    final Map<String, dynamic> arguments = {
       'url': url,
       'repeatMode': repeatMode,
       'isBackground': isBackground,
       'respectAudioFocus': respectAudioFocus,
       'position': position.inMilliseconds,
+      'cacheMaxBytes': cacheMaxBytes,
+      'cacheDirectory': cacheDirectory,
+      'cacheBypass': cacheBypass,
+      'sourceType': (sourceType ?? SourceType.AUTO).index,
+      'mimeType': mimeType,
+      'variantUrls': variants?.map((variant) => variant.url)?.toList(),
+      'variantBitrates': variants?.map((variant) => variant.bitrate)?.toList(),
       // audio notification object
       'smallIconFileName': smallIconFileName,
       'title': title,
@@ -235,9 +551,52 @@ class AudioPlayer {
       'isLocal': isLocal,
       'notificationActionMode': notificationActionMode,
       'notificationActionCallbackMode': notificationActionCallbackMode,
+    };
+    bufferConfig?._addArguments(arguments);
+    return ResultMap[await _invokeMethod('play', arguments)];
+  }
+
+
+  /// Plays a short clip with low latency. android device
+  ///
+  /// The clip is decoded once and kept in memory, later calls replay it
+  /// without buffering. Up to [maxVoices] plays of this player can overlap.
+  /// With [respectAudioFocus] each play briefly takes the audio focus, other
+  /// apps duck meanwhile, and the clip stops when another app takes it.
+  Future<Result> playSoundEffect(
+      String url, {
+        int maxVoices,
+        int cacheMaxBytes,
+        bool respectAudioFocus = false,
+      }) async {
+    return ResultMap[await _invokeMethod('play', {
+      'url': url,
+      'repeatMode': false,
+      'isBackground': true,
+      'respectAudioFocus': respectAudioFocus ?? false,
+      'isSoundEffect': true,
+      'maxVoices': maxVoices,
+      'soundEffectCacheMaxBytes': cacheMaxBytes,
     })];
   }
 
+  /// Starts buffering [url] in the background.
+  ///
+  /// A following [play] call with the same url starts without buffering.
+  /// Pass the same [variants] as to [play], the variant is picked when
+  /// buffering starts.
+  Future<Result> preload(String url,
+      {SourceType sourceType = SourceType.AUTO,
+      String mimeType,
+      List<AudioVariant> variants}) async {
+    return ResultMap[await _invokeMethod('preload', {
+      'url': url,
+      'sourceType': (sourceType ?? SourceType.AUTO).index,
+      'mimeType': mimeType,
+      'variantUrls': variants?.map((variant) => variant.url)?.toList(),
+      'variantBitrates': variants?.map((variant) => variant.bitrate)?.toList(),
+    })];
+  }
 
   /// Pauses the audio that is currently playing.
   ///
@@ -324,12 +683,276 @@ class AudioPlayer {
     return await _invokeMethod('getCurrentPlayingAudioIndex');
   }
 
+  /// Plays a playlist of [items] starting at [index].
+  ///
+  /// Items are sent as one packed buffer, playlists longer than [pageSize]
+  /// are uploaded in pages before playback starts. [bufferConfig] works as
+  /// in [play].
+  ///
+  /// While an item plays, the first [prefetchBytes] of the next
+  /// [prefetchCount] items and of the previous one are cached so that
+  /// skipping to them starts without buffering. A [prefetchCount] of 0
+  /// disables prefetching.
+  Future<Result> playAll(
+      List<PlaylistItem> items, {
+        int index = 0,
+        bool repeatMode = false,
+        bool respectAudioFocus = false,
+        PlayerMode playerMode = PlayerMode.BACKGROUND,
+        bool lazyPlaylist = false,
+        int lazyWindowSize,
+        bool cacheBypass = false,
+        BufferConfig bufferConfig,
+        int prefetchCount = 2,
+        int prefetchBytes = 512 * 1024,
+        int pageSize = 1000,
+      }) async {
+    final bool isBackground = (playerMode ?? PlayerMode.BACKGROUND) == PlayerMode.BACKGROUND;
+    final Map<String, dynamic> arguments = {
+      'index': index ?? 0,
+      'repeatMode': repeatMode ?? false,
+      'respectAudioFocus': respectAudioFocus ?? false,
+      'isBackground': isBackground,
+      'lazyPlaylist': lazyPlaylist ?? false,
+      'lazyWindowSize': lazyWindowSize,
+      'cacheBypass': cacheBypass ?? false,
+      'prefetchCount': prefetchCount ?? 0,
+      'prefetchBytes': prefetchBytes ?? 0,
+    };
+    bufferConfig?._addArguments(arguments);
+    pageSize ??= 1000;
+    if (items.length <= pageSize) {
+      arguments['packedPlaylist'] = _encodePlaylist(items);
+    } else {
+      for (int start = 0; start < items.length; start += pageSize) {
+        final int end = start + pageSize < items.length ? start + pageSize : items.length;
+        final Result result = ResultMap[await _invokeMethod('uploadPlaylistPage', {
+          'packedPlaylist': _encodePlaylist(items.sublist(start, end)),
+          'isBackground': isBackground,
+          'reset': start == 0,
+        })];
+        if (result != Result.SUCCESS) {
+          return result;
+        }
+      }
+      arguments['uploadedPlaylist'] = true;
+    }
+    return ResultMap[await _invokeMethod('playAll', arguments)];
+  }
+
+  /// Inserts audios into the current playlist at [index] without
+  /// interrupting the playing audio, appends them if [index] is omitted.
+  Future<Result> addItems(List<PlaylistItem> items, {int index = -1}) async {
+    return ResultMap[await _invokeMethod('addItems', {
+      'packedPlaylist': _encodePlaylist(items),
+      'index': index ?? -1,
+    })];
+  }
+
+  /// Removes the playlist audios from [fromIndex] inclusive to [toIndex]
+  /// exclusive.
+  Future<Result> removeRange(int fromIndex, int toIndex) async {
+    return ResultMap[await _invokeMethod(
+        'removeRange', {'fromIndex': fromIndex, 'toIndex': toIndex})];
+  }
+
+  /// Moves a playlist audio from [fromIndex] to [toIndex].
+  Future<Result> moveItem(int fromIndex, int toIndex) async {
+    return ResultMap[await _invokeMethod(
+        'moveItem', {'fromIndex': fromIndex, 'toIndex': toIndex})];
+  }
+
+  /// Replaces the playlist audio at [index] with [item].
+  Future<Result> replaceItem(int index, PlaylistItem item) async {
+    return ResultMap[await _invokeMethod('replaceItem', {
+      'index': index,
+      'url': item.url,
+      'sourceType': (item.sourceType ?? SourceType.AUTO).index,
+      'mimeType': item.mimeType,
+      'variantUrls': item.variants?.map((variant) => variant.url)?.toList(),
+      'variantBitrates':
+          item.variants?.map((variant) => variant.bitrate)?.toList(),
+      // audio notification object
+      'smallIconFileName': item.smallIconFileName,
+      'title': item.title,
+      'subTitle': item.subTitle,
+      'largeIconUrl': item.largeIconUrl,
+      'isLocal': item.isLocal ?? false,
+      'notificationActionMode': item.notificationActionMode,
+      'notificationActionCallbackMode': item.notificationActionCallbackMode,
+    })];
+  }
+
+  /// Gets the time from the last play call until the audio started playing.
+  Future<Duration> getStartupLatency() async {
+    int milliseconds = await _invokeMethod('getStartupLatency');
+    return Duration(milliseconds: milliseconds);
+  }
+
   // Sets the repeat mode.
   Future<Result> setRepeatMode(bool repeatMode) async {
     return ResultMap[
     await _invokeMethod('setRepeatMode', {'repeatMode': repeatMode})];
   }
 
+  /// Gets hit/miss counters of the shared media, sound effect and artwork
+  /// caches.
+  Future<Map<dynamic, dynamic>> getCacheStats() async {
+    return await _invokeMapMethod('getCacheStats');
+  }
+
+  /// Keeps [size] background players warmed up so that new players start
+  /// without building a native player first.
+  Future<Result> configurePlayerPool(int size) async {
+    return ResultMap[await _invokeMethod('configurePlayerPool', {'size': size})];
+  }
+
+  /// Sends position, buffered position, state and duration of all players in
+  /// one message per tick instead of separate messages per player. Duration is
+  /// only sent when it changes.
+  Future<Result> setBatchedUpdates(bool enabled) async {
+    return ResultMap[await _invokeMethod('setBatchedUpdates', {'enabled': enabled})];
+  }
+
+  /// Sets how often [onAudioPositionChanged] fires for this player.
+  ///
+  /// With [adaptive] the player falls back to one update per second while the
+  /// app is in background or nobody listens to [onAudioPositionChanged].
+  Future<Result> setPositionUpdateInterval(Duration interval,
+      {bool adaptive = false}) async {
+    return ResultMap[await _invokeMethod('setPositionUpdateInterval', {
+      'intervalMs': interval.inMilliseconds,
+      'adaptive': adaptive ?? false,
+    })];
+  }
+
+  Future<void> _setPositionListenerActive(bool active) async {
+    if (Platform.isAndroid) {
+      await _invokeMethod('setPositionListenerActive', {'active': active});
+    }
+  }
+
+  /// Gets playback metrics of this player: time to first frame, rebuffer
+  /// count and duration, audio underruns, bytes loaded, load durations and the
+  /// bitrate estimate.
+  Future<Map<dynamic, dynamic>> getMetrics() async {
+    return await _invokeMapMethod('getMetrics');
+  }
+
+  /// Clears the counters returned by [getMetrics].
+  Future<Result> resetMetrics() async {
+    return ResultMap[await _invokeMethod('resetMetrics')];
+  }
+
+  /// Gets per method timings of channel commands, split into main thread
+  /// and playback thread time. The `serviceBind` entry holds the time from a
+  /// foreground [play] call until the playback service was bound.
+  Future<Map<dynamic, dynamic>> getCommandMetrics() async {
+    return await _invokeMapMethod('getCommandMetrics');
+  }
+
+  /// Clears the timings returned by [getCommandMetrics].
+  Future<Result> resetCommandMetrics() async {
+    return ResultMap[await _invokeMethod('resetCommandMetrics')];
+  }
+
+  /// Gets size and hit rate of the warm player pool.
+  Future<Map<dynamic, dynamic>> getPoolStats() async {
+    return await _invokeMapMethod('getPoolStats');
+  }
+
+  /// Configures the HTTP client shared by all players and artwork loads.
+  ///
+  /// Null values keep the current setting, [headers] are added to every
+  /// request.
+  Future<Result> configureHttp({
+    Duration connectTimeout,
+    Duration readTimeout,
+    Map<String, String> headers,
+  }) async {
+    return ResultMap[await _invokeMethod('configureHttp', {
+      'connectTimeoutMs': connectTimeout?.inMilliseconds,
+      'readTimeoutMs': readTimeout?.inMilliseconds,
+      'headers': headers,
+    })];
+  }
+
+  /// Gets request and connection reuse counts of the shared HTTP client.
+  Future<Map<dynamic, dynamic>> getHttpStats() async {
+    return await _invokeMapMethod('getHttpStats');
+  }
+
+  /// Downloads [items] for offline playback.
+  ///
+  /// Downloaded items are played from disk by all players, progress is sent
+  /// on [onDownloadChanged]. Unfinished downloads continue in a later session
+  /// once any download method is called again.
+  Future<Result> downloadPlaylist(List<PlaylistItem> items, {int maxParallelDownloads}) async {
+    return ResultMap[await _invokeMethod('downloadPlaylist', {
+      'packedPlaylist': _encodePlaylist(items),
+      'maxParallelDownloads': maxParallelDownloads,
+    })];
+  }
+
+  /// Removes the offline copy of [url].
+  Future<Result> removeDownload(String url) async {
+    return ResultMap[await _invokeMethod('removeDownload', {'url': url})];
+  }
+
+  Future<Result> pauseDownloads() async {
+    return ResultMap[await _invokeMethod('pauseDownloads')];
+  }
+
+  Future<Result> resumeDownloads() async {
+    return ResultMap[await _invokeMethod('resumeDownloads')];
+  }
+
+  /// Gets the status of all downloads.
+  Future<List<DownloadStatus>> getDownloads() async {
+    final Map<dynamic, dynamic> downloads = await _invokeMapMethod('getDownloads');
+    return downloads.values.map((status) => DownloadStatus._fromMap(status)).toList();
+  }
+
+  /// Sets how failed loads are retried by all players.
+  ///
+  /// A failed load is retried [maxLoadRetries] times with exponential backoff
+  /// between [initialDelay] and [maxDelay] before the player sees the error,
+  /// then the player retries in place [maxPlayerRetries] times. Client errors
+  /// other than 408/429 are only retried with [retryClientErrors]. Applies to
+  /// audio prepared afterwards.
+  Future<Result> setRetryPolicy({
+    int maxLoadRetries = 3,
+    int maxPlayerRetries = 2,
+    Duration initialDelay = const Duration(seconds: 1),
+    Duration maxDelay = const Duration(seconds: 8),
+    bool retryClientErrors = false,
+  }) async {
+    return ResultMap[await _invokeMethod('setRetryPolicy', {
+      'maxLoadRetries': maxLoadRetries,
+      'maxPlayerRetries': maxPlayerRetries,
+      'initialDelayMs': initialDelay.inMilliseconds,
+      'maxDelayMs': maxDelay.inMilliseconds,
+      'retryClientErrors': retryClientErrors,
+    })];
+  }
+
+  /// Builds new players with the audio renderer only (default) or with
+  /// ExoPlayer's default renderers. Players created before keep theirs.
+  Future<Result> setAudioOnlyRenderers(bool enabled) async {
+    return ResultMap[await _invokeMethod('setAudioOnlyRenderers', {'enabled': enabled})];
+  }
+
+  /// Gets average construction time and heap growth of native players, split
+  /// by audio-only and default renderers.
+  Future<Map<dynamic, dynamic>> getPlayerConstructionStats() async {
+    return await _invokeMapMethod('getPlayerConstructionStats');
+  }
+
+  /// Clears the numbers returned by [getPlayerConstructionStats].
+  Future<Result> resetPlayerConstructionStats() async {
+    return ResultMap[await _invokeMethod('resetPlayerConstructionStats')];
+  }
+
   static Future<void> platformCallHandler(MethodCall call) async {
     try {
       _doHandlePlatformCall(call);
@@ -357,16 +980,55 @@ class AudioPlayer {
     }
   }
 
+  Future<Map<dynamic, dynamic>> _invokeMapMethod(
+      String method, [
+        Map<String, dynamic> arguments,
+      ]) async {
+    arguments ??= const {};
+
+    final Map<String, dynamic> withPlayerId = Map.of(arguments)
+      ..['playerId'] = playerId;
+
+    return _channel
+        .invokeMethod(method, withPlayerId)
+        .then((result) => (result as Map<dynamic, dynamic>));
+  }
+
+  static void _handleEvent(dynamic event) {
+    try {
+      final List<dynamic> fields = event as List;
+      final String method = _eventMethods[fields[0]];
+      final value = fields[2];
+      if (fields[1] == null && value is List && method != 'audio.onUpdates') {
+        // conflated events, value holds playerId and value pairs
+        for (int i = 0; i + 1 < value.length; i += 2) {
+          _doHandleEvent(method, value[i], value[i + 1]);
+        }
+      } else {
+        _doHandleEvent(method, fields[1], value);
+      }
+    } catch (ex) {
+      _log('Unexpected error: $ex');
+    }
+  }
 
   static Future<void> _doHandlePlatformCall(MethodCall call) async {
     final Map<dynamic, dynamic> callArgs = call.arguments as Map;
     _log('_platformCallHandler call ${call.method} $callArgs');
 
-    final playerId = callArgs['playerId'] as String;
+    _doHandleEvent(
+        call.method, callArgs['playerId'] as String, callArgs['value']);
+  }
+
+  static void _doHandleEvent(String method, String playerId, dynamic value) {
+    if (method == 'audio.onDownloadChanged') {
+      // not bound to a player
+      _downloadController.add(DownloadStatus._fromMap(value));
+      return;
+    }
     final AudioPlayer player = players[playerId];
-    final value = callArgs['value'];
 
-    switch (call.method) {
+    switch (method) {
       case 'audio.onDurationChanged':
         Duration newDuration = Duration(milliseconds: value);
         player._durationController.add(newDuration);
@@ -390,12 +1052,42 @@ class AudioPlayer {
 //        player._notificationActionController
 //            .add(NotificationActionNameMap[value]);
 //        break;
+      case 'audio.onUpdates':
+        for (final Map<dynamic, dynamic> update in value) {
+          final AudioPlayer updatedPlayer = players[update['playerId']];
+          if (updatedPlayer == null) {
+            continue;
+          }
+          if (update.containsKey('duration')) {
+            updatedPlayer._durationController
+                .add(Duration(milliseconds: update['duration']));
+          }
+          updatedPlayer._positionController
+              .add(Duration(milliseconds: update['position']));
+          updatedPlayer._bufferedPositionController
+              .add(Duration(milliseconds: update['bufferedPosition']));
+          final PlayerState newState = PlayerStateMap[update['state']];
+          if (updatedPlayer._playerState != newState) {
+            updatedPlayer._playerState = newState;
+            updatedPlayer._playerStateController.add(newState);
+          }
+        }
+        break;
       case 'audio.onError':
-        player._playerState = PlayerState.STOPPED; //! TODO maybe released?
-        player._errorController.add(value);
+        if (value is Map) {
+          final PlayerError error = PlayerError._fromMap(value);
+          if (!error.willRetry) {
+            player._playerState = PlayerState.STOPPED;
+          }
+          player._errorController.add(error.toString());
+          player._playerErrorController.add(error);
+        } else {
+          player._playerState = PlayerState.STOPPED; //! TODO maybe released?
+          player._errorController.add(value);
+        }
         break;
       default:
-        _log('Unknown method ${call.method} ');
+        _log('Unknown method $method ');
     }
   }
 
@@ -424,9 +1116,15 @@ class AudioPlayer {
     if (!_errorController.isClosed) {
       futures.add(_errorController.close());
     }
+    if (!_playerErrorController.isClosed) {
+      futures.add(_playerErrorController.close());
+    }
     if (!_currentPlayingIndexController.isClosed) {
       futures.add(_currentPlayingIndexController.close());
     }
+    if (!_bufferedPositionController.isClosed) {
+      futures.add(_bufferedPositionController.close());
+    }
 //    if (!_audioSessionIdController.isClosed) {
 //      futures.add(_audioSessionIdController.close());
 //    }
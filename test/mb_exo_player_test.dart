@@ -1,13 +1,19 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
 import 'package:flutter/services.dart';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:mb_exo_player/mb_exo_player.dart';
 
 void main() {
   const MethodChannel channel = MethodChannel('mb_exo_player');
+  final List<MethodCall> calls = <MethodCall>[];
 
   setUp(() {
+    calls.clear();
     channel.setMockMethodCallHandler((MethodCall methodCall) async {
-      return '42';
+      calls.add(methodCall);
+      return 2; //success
     });
   });
 
@@ -18,4 +24,90 @@ void main() {
 //  test('getPlatformVersion', () async {
 //    expect(await MbExoPlayer.platformVersion, '42');
 //  });
+
+  // mirrors PlaylistCodec.decode on the android side
+  test('playAll sends the packed playlist layout', () async {
+    final Result result = await AudioPlayer().playAll([
+      PlaylistItem(
+        'https://example.com/1.mp3',
+        title: 'One',
+        isLocal: true,
+        notificationActionMode: 1,
+      ),
+      PlaylistItem(
+        'https://example.com/2.mp3',
+        mimeType: 'audio/mpeg',
+        sourceType: SourceType.PROGRESSIVE,
+        variants: [
+          AudioVariant('https://example.com/2_64.mp3', 64000),
+          AudioVariant('https://example.com/2.mp3', 128000),
+        ],
+      ),
+    ]);
+    expect(result, Result.SUCCESS);
+    expect(calls.single.method, 'playAll');
+
+    final Uint8List bytes = calls.single.arguments['packedPlaylist'];
+    final ByteData data = ByteData.view(bytes.buffer, bytes.offsetInBuffer, bytes.length);
+    int offset = 0;
+    int readInt32() {
+      final int value = data.getInt32(offset);
+      offset += 4;
+      return value;
+    }
+
+    int readInt8() => data.getInt8(offset++);
+
+    expect(readInt32(), 3); // version
+
+    // repeated strings are stored once
+    final List<String> strings = <String>[];
+    final int stringCount = readInt32();
+    for (int i = 0; i < stringCount; i++) {
+      final int length = readInt32();
+      strings.add(utf8.decode(bytes.sublist(offset, offset + length)));
+      offset += length;
+    }
+    expect(strings, [
+      'https://example.com/1.mp3',
+      'One',
+      'https://example.com/2.mp3',
+      'audio/mpeg',
+      'https://example.com/2_64.mp3',
+    ]);
+
+    expect(readInt32(), 2); // itemCount
+
+    // item without variants
+    expect([readInt32(), readInt32(), readInt32(), readInt32(), readInt32()], [0, -1, 1, -1, -1]);
+    expect([readInt8(), readInt8(), readInt8()], [1, 1, 0]);
+    expect(readInt32(), -1); // mimeType
+    expect(readInt8(), SourceType.AUTO.index);
+    expect(readInt32(), 0); // variantCount
+
+    // item with variants
+    expect([readInt32(), readInt32(), readInt32(), readInt32(), readInt32()], [2, -1, -1, -1, -1]);
+    expect([readInt8(), readInt8(), readInt8()], [0, 0, 0]);
+    expect(readInt32(), 3); // mimeType
+    expect(readInt8(), SourceType.PROGRESSIVE.index);
+    expect(readInt32(), 2); // variantCount
+    expect([readInt32(), readInt32()], [4, 64000]);
+    expect([readInt32(), readInt32()], [2, 128000]);
+
+    expect(offset, bytes.length);
+  });
+
+  test('preload sends the variants like play', () async {
+    await AudioPlayer().preload(
+      'https://example.com/2.mp3',
+      variants: [
+        AudioVariant('https://example.com/2_64.mp3', 64000),
+        AudioVariant('https://example.com/2.mp3', 128000),
+      ],
+    );
+    expect(calls.single.method, 'preload');
+    expect(calls.single.arguments['variantUrls'],
+        ['https://example.com/2_64.mp3', 'https://example.com/2.mp3']);
+    expect(calls.single.arguments['variantBitrates'], [64000, 128000]);
+  });
 }